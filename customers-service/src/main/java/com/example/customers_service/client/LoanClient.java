@@ -1,5 +1,6 @@
 package com.example.customers_service.client;
 
+import com.example.customers_service.dto.LoanEligibilitySummaryDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -8,6 +9,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 @FeignClient(name = "loans-service", path = "/api/loans")
 public interface LoanClient {
 
+    @GetMapping("/{customerId}/eligibility-summary")
+    LoanEligibilitySummaryDTO getEligibilitySummary(@PathVariable("customerId") Long customerId);
+
     @GetMapping("/{customerId}/active-count")
     Integer getActiveLoansCount(@PathVariable("customerId") Long customerId);
 
@@ -30,6 +30,13 @@ public class CustomerController {
         return ResponseEntity.ok(customer);
     }
 
+    // Búsqueda en lote para enriquecer listados de otros servicios
+    @PostMapping("/batch")
+    public ResponseEntity<List<CustomerResponseDTO>> getCustomersByIds(@RequestBody List<Long> ids) {
+        List<CustomerResponseDTO> customers = customerService.getCustomersByIds(ids);
+        return ResponseEntity.ok(customers);
+    }
+
     // ENDPOINT ESPECIAL para Loan Service
     @GetMapping("/{id}/validate-loan")
     public ResponseEntity<CustomerValidationDTO> validateForLoan(@PathVariable Long id) {
@@ -0,0 +1,16 @@
+// En /dto/LoanEligibilitySummaryDTO.java - respuesta de Loan Service
+package com.example.customers_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanEligibilitySummaryDTO {
+    private Long activeLoansCount;
+    private Long overdueLoansCount;
+    private Double unpaidFinesSum;
+    private Double unpaidDamageSum;
+}
@@ -48,25 +48,32 @@ public class CustomerService {
         return mapToDTO(customer);
     }
 
+    // Una sola consulta para todos los IDs; los inexistentes se omiten
+    public List<CustomerResponseDTO> getCustomersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return customerRepository.findAllById(ids).stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
     // MÉTODO ESPECIAL para Loan Service
     public CustomerValidationDTO validateForLoan(Long customerId) {
         CustomerEntity customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Cliente no encontrado"));
 
-        // Obtener datos reales desde Loan Service
-        int activeCount = loanClient.getActiveLoansCount(customerId);
-        long overdueCount = loanClient.getOverdueLoansCount(customerId);
-        double unpaidFines = loanClient.getUnpaidFinesSum(customerId);
-        double unpaidDamage = loanClient.getUnpaidDamageSum(customerId);
+        // Obtener datos reales desde Loan Service (una sola llamada)
+        LoanEligibilitySummaryDTO summary = loanClient.getEligibilitySummary(customerId);
 
         CustomerValidationDTO dto = new CustomerValidationDTO();
         dto.setId(customer.getId());
         dto.setName(customer.getName());
         dto.setStatus(customer.getStatus().toString());
-        dto.setHasOverdueLoans(overdueCount > 0);
-        dto.setHasUnpaidFines(unpaidFines > 0);
-        dto.setHasUnpaidDamage(unpaidDamage > 0);
-        dto.setActiveLoansCount(activeCount);
+        dto.setHasOverdueLoans(summary.getOverdueLoansCount() > 0);
+        dto.setHasUnpaidFines(summary.getUnpaidFinesSum() > 0);
+        dto.setHasUnpaidDamage(summary.getUnpaidDamageSum() > 0);
+        dto.setActiveLoansCount(summary.getActiveLoansCount().intValue());
 
         return dto;
     }
@@ -4,6 +4,10 @@ import com.example.kardex_service.model.CustomerModel;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 // CustomerClient.java
 @FeignClient(
@@ -14,4 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 public interface CustomerClient {
     @GetMapping("/{id}")
     CustomerModel getCustomer(@PathVariable Long id);
+
+    @PostMapping("/batch")
+    List<CustomerModel> getCustomersByIds(@RequestBody List<Long> ids);
 }
\ No newline at end of file
@@ -4,6 +4,10 @@ import com.example.kardex_service.model.ToolUnitModel;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 // ToolClient.java
 @FeignClient(
@@ -14,4 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 public interface ToolClient {
     @GetMapping("/{unitId}")
     ToolUnitModel getToolUnit(@PathVariable Long unitId);
+
+    @PostMapping("/batch")
+    List<ToolUnitModel> getToolUnitsByIds(@RequestBody List<Long> ids);
 }
\ No newline at end of file
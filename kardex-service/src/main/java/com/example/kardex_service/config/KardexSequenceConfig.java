@@ -0,0 +1,36 @@
+package com.example.kardex_service.config;
+
+import com.example.kardex_service.entity.KardexMovementEntity;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Los IDs de kardex_movements pasaron de AUTO_INCREMENT a una secuencia (tabla kardex_movements_seq
+// en MySQL). Al arrancar se adelanta la secuencia por encima del mayor id existente para no chocar
+// con movimientos anteriores; el margen cubre el bloque que entrega el optimizador pooled.
+@Configuration
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class KardexSequenceConfig {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequence() {
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE kardex_movements_seq SET next_val = GREATEST(next_val, " +
+                            "(SELECT COALESCE(MAX(id), 0) FROM kardex_movements) + 1 + ?)",
+                    KardexMovementEntity.ID_ALLOCATION_SIZE);
+            log.info("Secuencia kardex_movements_seq alineada ({} filas)", updated);
+        } catch (DataAccessException e) {
+            // Bases con secuencias nativas no usan la tabla de emulación
+            log.info("Secuencia kardex_movements_seq no alineada: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+}
@@ -3,14 +3,30 @@ package com.example.kardex_service.controller;
 import com.example.kardex_service.dto.*;
 import com.example.kardex_service.entity.MovementType;
 import com.example.kardex_service.service.KardexService;
+import com.example.kardex_service.service.KardexWritePipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/kardex")
@@ -18,13 +34,45 @@ import java.util.List;
 public class KardexController {
 
     private final KardexService kardexService;
+    private final ObjectProvider<KardexWritePipeline> writePipeline;
+    private final ObjectMapper objectMapper;
+
+    private static final String CSV_HEADER = "id,movementDate,movementType,toolUnitId,toolGroupId,toolGroupName," +
+            "customerId,customerName,userId,userName,details\n";
 
     // ========== ENDPOINTS GENERALES ==========
 
+    // Con kardex.async-ingestion.enabled=true la solicitud se encola: 202 con un token para consultar
+    // el resultado, o 503 si el buffer está lleno y el productor debe reintentar. Si no, 200 con el movimiento.
     @PostMapping("/movements")
-    public ResponseEntity<KardexResponseDTO> registerMovement(@RequestBody KardexRequest request) {
-        KardexResponseDTO movement = kardexService.registerMovement(request);
-        return ResponseEntity.ok(movement);
+    public ResponseEntity<?> registerMovement(@RequestBody KardexRequest request) {
+        KardexWritePipeline pipeline = writePipeline.getIfAvailable();
+        if (pipeline == null) {
+            return ResponseEntity.ok(kardexService.registerMovement(request));
+        }
+        return pipeline.submit(request)
+                .<ResponseEntity<?>>map(token -> ResponseEntity.status(HttpStatus.ACCEPTED).body(token))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build());
+    }
+
+    @GetMapping("/movements/async/{token}")
+    public ResponseEntity<MovementTokenDTO> getAsyncMovementStatus(@PathVariable String token) {
+        KardexWritePipeline pipeline = writePipeline.getIfAvailable();
+        if (pipeline == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return pipeline.getStatus(token)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Registro en lote (outbox de otros servicios): todo o nada
+    @PostMapping("/movements/batch")
+    public ResponseEntity<List<KardexResponseDTO>> registerMovements(@RequestBody List<KardexRequest> requests) {
+        List<KardexResponseDTO> movements = kardexService.registerMovements(requests);
+        return ResponseEntity.ok(movements);
     }
 
     @GetMapping("/movements")
@@ -95,6 +143,106 @@ public class KardexController {
         return ResponseEntity.ok(movements);
     }
 
+    // ===== Paginación por cursor: ?after=<nextCursor recibido>&size=N =====
+
+    @GetMapping("/movements/page")
+    public ResponseEntity<KardexPageDTO> getMovementsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(kardexService.getMovementsPage(KardexFilter.all(), after, size));
+    }
+
+    @GetMapping("/movements/tool-unit/{toolUnitId}/page")
+    public ResponseEntity<KardexPageDTO> getMovementsByToolUnitPage(
+            @PathVariable Long toolUnitId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(kardexService.getMovementsPage(KardexFilter.byToolUnit(toolUnitId), after, size));
+    }
+
+    @GetMapping("/movements/tool-group/{toolGroupId}/page")
+    public ResponseEntity<KardexPageDTO> getMovementsByToolGroupPage(
+            @PathVariable Long toolGroupId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(kardexService.getMovementsPage(KardexFilter.byToolGroup(toolGroupId), after, size));
+    }
+
+    @GetMapping("/movements/customer/{customerId}/page")
+    public ResponseEntity<KardexPageDTO> getMovementsByCustomerPage(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(kardexService.getMovementsPage(KardexFilter.byCustomer(customerId), after, size));
+    }
+
+    @GetMapping("/movements/type/{movementType}/page")
+    public ResponseEntity<KardexPageDTO> getMovementsByTypePage(
+            @PathVariable String movementType,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(kardexService.getMovementsPage(KardexFilter.byType(parseType(movementType)), after, size));
+    }
+
+    @GetMapping("/movements/date-range/page")
+    public ResponseEntity<KardexPageDTO> getMovementsByDateRangePage(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        KardexFilter filter = KardexFilter.byDateRange(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        return ResponseEntity.ok(kardexService.getMovementsPage(filter, after, size));
+    }
+
+    // Exportación completa en memoria constante: NDJSON (un movimiento por línea) o CSV.
+    // Admite uno de los filtros de las consultas: toolUnitId, toolGroupId, customerId, type o from/to.
+    @GetMapping("/movements/export")
+    public ResponseEntity<StreamingResponseBody> exportMovements(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long toolUnitId,
+            @RequestParam(required = false) Long toolGroupId,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new RuntimeException("Formato no soportado: " + format);
+        }
+        if ((from == null) != (to == null)) {
+            throw new RuntimeException("El rango de fechas requiere from y to");
+        }
+        long filters = Stream.of(toolUnitId, toolGroupId, customerId, type, from).filter(Objects::nonNull).count();
+        if (filters > 1) {
+            throw new RuntimeException("Solo se admite un filtro por exportación");
+        }
+        KardexFilter filter = new KardexFilter(toolUnitId, toolGroupId, customerId,
+                type != null ? parseType(type) : null,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write(CSV_HEADER);
+            }
+            kardexService.streamMovements(filter, movement -> {
+                try {
+                    writer.write(csv ? toCsvLine(movement) : objectMapper.writeValueAsString(movement));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=kardex." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/movements/tool-unit/{toolUnitId}/last")
     public ResponseEntity<KardexResponseDTO> getLastMovementByToolUnit(@PathVariable Long toolUnitId) {
         KardexResponseDTO movement = kardexService.getLastMovementByToolUnit(toolUnitId);
@@ -258,6 +406,34 @@ public class KardexController {
     }
 
 
+    private static MovementType parseType(String movementType) {
+        try {
+            return MovementType.valueOf(movementType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Tipo de movimiento inválido: " + movementType);
+        }
+    }
+
+    private static String toCsvLine(KardexResponseDTO m) {
+        return String.join(",",
+                csvField(m.getId()), csvField(m.getMovementDate()), csvField(m.getMovementType()),
+                csvField(m.getToolUnitId()), csvField(m.getToolGroupId()), csvField(m.getToolGroupName()),
+                csvField(m.getCustomerId()), csvField(m.getCustomerName()),
+                csvField(m.getUserId()), csvField(m.getUserName()), csvField(m.getDetails()));
+    }
+
+    // Comillas solo cuando hacen falta (RFC 4180)
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
     /* RE_ENTRY: reingreso desde reparación
     @PostMapping("/movements/re-entry")
     public ResponseEntity<KardexResponseDTO> registerReEntry(
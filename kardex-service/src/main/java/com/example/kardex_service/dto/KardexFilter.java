@@ -0,0 +1,45 @@
+package com.example.kardex_service.dto;
+
+import com.example.kardex_service.entity.MovementType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Criterio de las consultas paginadas y de la exportación: a lo sumo uno de los filtros
+// (unidad, grupo, cliente, tipo o rango [from, to)); sin ninguno se recorre todo el Kardex
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexFilter {
+    private Long toolUnitId;
+    private Long toolGroupId;
+    private Long customerId;
+    private MovementType movementType;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public static KardexFilter all() {
+        return new KardexFilter();
+    }
+
+    public static KardexFilter byToolUnit(Long toolUnitId) {
+        return new KardexFilter(toolUnitId, null, null, null, null, null);
+    }
+
+    public static KardexFilter byToolGroup(Long toolGroupId) {
+        return new KardexFilter(null, toolGroupId, null, null, null, null);
+    }
+
+    public static KardexFilter byCustomer(Long customerId) {
+        return new KardexFilter(null, null, customerId, null, null, null);
+    }
+
+    public static KardexFilter byType(MovementType movementType) {
+        return new KardexFilter(null, null, null, movementType, null, null);
+    }
+
+    public static KardexFilter byDateRange(LocalDateTime from, LocalDateTime to) {
+        return new KardexFilter(null, null, null, null, from, to);
+    }
+}
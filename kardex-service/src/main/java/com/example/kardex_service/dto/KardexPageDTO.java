@@ -0,0 +1,15 @@
+package com.example.kardex_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Página por cursor (keyset sobre movementDate, id): nextCursor es null cuando no hay más resultados
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexPageDTO {
+    private List<KardexResponseDTO> items;
+    private String nextCursor;
+}
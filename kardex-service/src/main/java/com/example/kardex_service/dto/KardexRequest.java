@@ -15,4 +15,5 @@ public class KardexRequest {
     private Long customerId;
     private String details;
     private String userId; // Opcional, si no se envía se usa SYSTEM
+    private String idempotencyKey; // Opcional: un reenvío con la misma clave devuelve el movimiento ya registrado
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.kardex_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Comprobante de un movimiento encolado en modo asíncrono; movementId se completa al confirmarse
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovementTokenDTO {
+    private String token;
+    private Status status;
+    private Long movementId;
+    private String message;
+
+    public enum Status {
+        PENDING,
+        COMMITTED,
+        FAILED
+    }
+}
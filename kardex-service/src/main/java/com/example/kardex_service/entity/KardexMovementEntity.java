@@ -7,14 +7,31 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
+// Un índice por ruta de acceso de KardexRepository: filtro + (movement_date, id), para que los
+// rangos de fechas, el último movimiento por unidad y el keyset (movement_date, id) lean en orden
+// sin ordenar en memoria. En InnoDB el id ya va implícito al final; declararlo no duplica nada.
 @Entity
-@Table(name = "kardex_movements")
+@Table(name = "kardex_movements", indexes = {
+        @Index(name = "idx_kardex_unit_date", columnList = "tool_unit_id, movement_date, id"),
+        @Index(name = "idx_kardex_group_date", columnList = "tool_group_id, movement_date, id"),
+        @Index(name = "idx_kardex_customer_date", columnList = "customer_id, movement_date, id"),
+        @Index(name = "idx_kardex_type_date", columnList = "movement_type, movement_date, id"),
+        @Index(name = "idx_kardex_date", columnList = "movement_date, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_kardex_idempotency_key", columnNames = "idempotency_key")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class KardexMovementEntity {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Secuencia con bloques de 50 (en MySQL Hibernate la emula con la tabla kardex_movements_seq).
+    // A diferencia de IDENTITY, permite agrupar los INSERT del registro en lote.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kardex_movements_seq")
+    @SequenceGenerator(name = "kardex_movements_seq", sequenceName = "kardex_movements_seq",
+            allocationSize = KardexMovementEntity.ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "tool_unit_id")
@@ -51,4 +68,8 @@ public class KardexMovementEntity {
 
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Clave del emisor (p. ej. el outbox de Loan Service); null para los movimientos sin reenvío
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
 }
\ No newline at end of file
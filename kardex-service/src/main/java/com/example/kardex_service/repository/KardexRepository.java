@@ -1,13 +1,22 @@
 package com.example.kardex_service.repository;
 
 import com.example.kardex_service.entity.KardexMovementEntity;
+import com.example.kardex_service.entity.MovementType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface KardexRepository extends JpaRepository<KardexMovementEntity, Long> {
@@ -22,8 +31,8 @@ public interface KardexRepository extends JpaRepository<KardexMovementEntity, Lo
 
     List<KardexMovementEntity> findByCustomerId(Long customerId);
 
-    // Por tipo de movimiento (como string, no enum)
-    List<KardexMovementEntity> findByMovementType(String movementType);
+    // Por tipo de movimiento
+    List<KardexMovementEntity> findByMovementType(MovementType movementType);
 
     // Consultas personalizadas con JPQL
     @Query("SELECT k FROM KardexMovementEntity k WHERE k.toolUnitId = :toolUnitId AND k.movementDate BETWEEN :startDate AND :endDate")
@@ -41,7 +50,96 @@ public interface KardexRepository extends JpaRepository<KardexMovementEntity, Lo
     // Último movimiento de una unidad
     KardexMovementEntity findTopByToolUnitIdOrderByMovementDateDesc(Long toolUnitId);
 
+    // ===== Paginación por cursor (keyset sobre movementDate, id) =====
+    // El primer page usa un cursor anterior a cualquier movimiento (ver KardexService).
+    // Equivale a (movementDate, id) > (afterDate, afterId); el ">=" inicial le da al optimizador
+    // un rango sobre el índice en lugar de un OR que no sabe acotar.
+    String AFTER_CURSOR = "k.movementDate >= :afterDate AND (k.movementDate > :afterDate OR k.id > :afterId)";
+    String KEYSET_ORDER = " ORDER BY k.movementDate, k.id";
+    // Con el filtro por igualdad el orden es el mismo, pero anteponer la columna hace que el ORDER BY
+    // coincida con el índice compuesto y ningún optimizador (H2 incluido) tenga que ordenar en memoria
+
+    @Query("SELECT k FROM KardexMovementEntity k WHERE " + AFTER_CURSOR + KEYSET_ORDER)
+    List<KardexMovementEntity> findPageAfter(@Param("afterDate") LocalDateTime afterDate,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.toolUnitId = :toolUnitId AND " + AFTER_CURSOR +
+            " ORDER BY k.toolUnitId, k.movementDate, k.id")
+    List<KardexMovementEntity> findPageByToolUnitAfter(@Param("toolUnitId") Long toolUnitId,
+                                                       @Param("afterDate") LocalDateTime afterDate,
+                                                       @Param("afterId") Long afterId,
+                                                       Pageable pageable);
+
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.toolGroupId = :toolGroupId AND " + AFTER_CURSOR +
+            " ORDER BY k.toolGroupId, k.movementDate, k.id")
+    List<KardexMovementEntity> findPageByToolGroupAfter(@Param("toolGroupId") Long toolGroupId,
+                                                        @Param("afterDate") LocalDateTime afterDate,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.customerId = :customerId AND " + AFTER_CURSOR +
+            " ORDER BY k.customerId, k.movementDate, k.id")
+    List<KardexMovementEntity> findPageByCustomerAfter(@Param("customerId") Long customerId,
+                                                       @Param("afterDate") LocalDateTime afterDate,
+                                                       @Param("afterId") Long afterId,
+                                                       Pageable pageable);
+
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.movementType = :movementType AND " + AFTER_CURSOR +
+            " ORDER BY k.movementType, k.movementDate, k.id")
+    List<KardexMovementEntity> findPageByTypeAfter(@Param("movementType") MovementType movementType,
+                                                   @Param("afterDate") LocalDateTime afterDate,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.movementDate >= :from AND k.movementDate < :to AND " +
+            AFTER_CURSOR + KEYSET_ORDER)
+    List<KardexMovementEntity> findPageByDateRangeAfter(@Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to,
+                                                        @Param("afterDate") LocalDateTime afterDate,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+
+    // ===== Exportación en streaming (mismo orden que las páginas) =====
+    // Con MySQL, el driver solo trae las filas por bloques de STREAM_FETCH_SIZE con useCursorFetch=true;
+    // el servicio lo fija en spring.datasource.hikari.data-source-properties (application.yml).
+    int STREAM_FETCH_SIZE = 1000;
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT k FROM KardexMovementEntity k" + KEYSET_ORDER)
+    Stream<KardexMovementEntity> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.toolUnitId = :toolUnitId" +
+            " ORDER BY k.toolUnitId, k.movementDate, k.id")
+    Stream<KardexMovementEntity> streamByToolUnit(@Param("toolUnitId") Long toolUnitId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.toolGroupId = :toolGroupId" +
+            " ORDER BY k.toolGroupId, k.movementDate, k.id")
+    Stream<KardexMovementEntity> streamByToolGroup(@Param("toolGroupId") Long toolGroupId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.customerId = :customerId" +
+            " ORDER BY k.customerId, k.movementDate, k.id")
+    Stream<KardexMovementEntity> streamByCustomer(@Param("customerId") Long customerId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.movementType = :movementType" +
+            " ORDER BY k.movementType, k.movementDate, k.id")
+    Stream<KardexMovementEntity> streamByType(@Param("movementType") MovementType movementType);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT k FROM KardexMovementEntity k WHERE k.movementDate >= :from AND k.movementDate < :to" + KEYSET_ORDER)
+    Stream<KardexMovementEntity> streamByDateRange(@Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
     // Contar movimientos por tipo
     @Query("SELECT COUNT(k) FROM KardexMovementEntity k WHERE k.movementType = :movementType")
-    Long countByMovementType(@Param("movementType") String movementType);
-}
\ No newline at end of file
+    Long countByMovementType(@Param("movementType") MovementType movementType);
+
+    // Idempotencia: movimientos ya registrados con alguna de estas claves (índice único)
+    List<KardexMovementEntity> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    Optional<KardexMovementEntity> findByIdempotencyKey(String idempotencyKey);
+}
@@ -1,19 +1,29 @@
 package com.example.kardex_service.service;
 
-import com.example.kardex_service.client.*;
 import com.example.kardex_service.dto.*;
 import com.example.kardex_service.entity.KardexMovementEntity;
 import com.example.kardex_service.entity.MovementType;
 import com.example.kardex_service.model.*;
 import com.example.kardex_service.repository.KardexRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -21,8 +31,12 @@ import java.util.stream.Collectors;
 public class KardexService {
 
     private final KardexRepository kardexRepository;
-    private final ToolClient toolClient;
-    private final CustomerClient customerClient;
+    private final NameCache nameCache;
+    private final EntityManager entityManager;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    // Cursor implícito de la primera página: anterior a cualquier movimiento
+    private static final LocalDateTime FIRST_CURSOR_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
 
     // ========== MÉTODOS PARA REGISTRAR MOVIMIENTOS ==========
 
@@ -34,20 +48,25 @@ public class KardexService {
         log.info("Registrando movimiento - Tipo: {}, Unidad: {}, Usuario: {}",
                 request.getMovementType(), request.getToolUnitId(), request.getUserId());
 
-        // Determinar usuario (si no viene, usar SYSTEM)
-        String userId = request.getUserId() != null ? request.getUserId() : "Sistema";
+        if (request.getIdempotencyKey() != null) {
+            Optional<KardexMovementEntity> existing = kardexRepository.findByIdempotencyKey(request.getIdempotencyKey());
+            if (existing.isPresent()) {
+                log.info("Movimiento con clave {} ya registrado (ID {}), se ignora el reenvío",
+                        request.getIdempotencyKey(), existing.get().getId());
+                return mapToDTO(existing.get());
+            }
+        }
 
         // CustomerId puede ser null
         Long customerId = request.getCustomerId(); // Puede ser null
 
         // Obtener datos para denormalización
         ToolUnitModel toolUnit = null;
-        CustomerModel customer = null;
         String toolGroupName = "Desconocido";
         String customerName = "N/A";
 
         try {
-            toolUnit = toolClient.getToolUnit(request.getToolUnitId());
+            toolUnit = nameCache.getToolUnit(request.getToolUnitId());
             if (toolUnit != null) {
                 toolGroupName = toolUnit.getToolGroupName();
             }
@@ -58,32 +77,101 @@ public class KardexService {
         // SOLO obtener info del cliente si customerId no es null
         if (customerId != null) {
             try {
-                customer = customerClient.getCustomer(customerId);
-                if (customer != null) {
-                    customerName = customer.getName();
+                String name = nameCache.getCustomerName(customerId);
+                if (name != null) {
+                    customerName = name;
                 }
             } catch (Exception e) {
                 log.warn("No se pudo obtener información del cliente {}", customerId, e);
             }
         }
 
-        // Crear movimiento
+        KardexMovementEntity saved = kardexRepository.save(buildMovement(request, toolUnit, toolGroupName, customerName));
+        log.info("Movimiento registrado con ID: {}", saved.getId());
+
+        return mapToDTO(saved);
+    }
+
+    // Varios movimientos en una sola transacción, en el orden recibido (los IDs también).
+    // Devuelve un resultado por solicitud: las que traen una clave de idempotencia ya registrada
+    // (o repetida en el mismo lote) devuelven ese movimiento en vez de crear otro.
+    // Los nombres denormalizados salen de la caché y los faltantes se piden con una llamada en lote
+    // por servicio (si el servicio no responde se usan los nombres por defecto); los INSERT se agrupan en lotes JDBC (hibernate.jdbc.batch_size).
+    @Transactional
+    public List<KardexResponseDTO> registerMovements(List<KardexRequest> requests) {
+        log.info("Registrando lote de {} movimientos", requests.size());
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> keys = requests.stream()
+                .map(KardexRequest::getIdempotencyKey)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, KardexMovementEntity> byKey = new HashMap<>();
+        if (!keys.isEmpty()) {
+            kardexRepository.findByIdempotencyKeyIn(keys)
+                    .forEach(existing -> byKey.put(existing.getIdempotencyKey(), existing));
+        }
+
+        Map<Long, ToolUnitModel> toolUnits = nameCache.getToolUnits(requests.stream()
+                .map(KardexRequest::getToolUnitId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList()));
+        Map<Long, String> customerNames = nameCache.getCustomerNames(requests.stream()
+                .map(KardexRequest::getCustomerId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList()));
+
+        List<KardexMovementEntity> results = new ArrayList<>(requests.size());
+        List<KardexMovementEntity> movements = new ArrayList<>(requests.size());
+        for (KardexRequest request : requests) {
+            KardexMovementEntity existing = request.getIdempotencyKey() != null ? byKey.get(request.getIdempotencyKey()) : null;
+            if (existing != null) {
+                results.add(existing);
+                continue;
+            }
+            ToolUnitModel toolUnit = request.getToolUnitId() != null ? toolUnits.get(request.getToolUnitId()) : null;
+            String customerName = request.getCustomerId() != null ? customerNames.get(request.getCustomerId()) : null;
+            KardexMovementEntity movement = buildMovement(request, toolUnit,
+                    toolUnit != null ? toolUnit.getToolGroupName() : "Desconocido",
+                    customerName != null ? customerName : "N/A");
+            if (request.getIdempotencyKey() != null) {
+                byKey.put(request.getIdempotencyKey(), movement);
+            }
+            movements.add(movement);
+            results.add(movement);
+        }
+
+        // persist asigna el ID sobre la misma instancia, así que results queda completo
+        kardexRepository.saveAll(movements);
+        log.info("Lote registrado: {} movimientos nuevos, {} ya registrados",
+                movements.size(), requests.size() - movements.size());
+        return results.stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    private KardexMovementEntity buildMovement(KardexRequest request, ToolUnitModel toolUnit,
+                                               String toolGroupName, String customerName) {
+        // Determinar usuario (si no viene, usar SYSTEM)
+        String userId = request.getUserId() != null ? request.getUserId() : "Sistema";
+
         KardexMovementEntity movement = new KardexMovementEntity();
         movement.setToolUnitId(request.getToolUnitId());
         movement.setToolGroupId(request.getToolGroupId() != null ?
                 request.getToolGroupId() : (toolUnit != null ? toolUnit.getToolGroupId() : 0L));
-        movement.setCustomerId(customerId);  // Puede ser null
+        movement.setCustomerId(request.getCustomerId());  // Puede ser null
         movement.setUserId(userId);
         movement.setMovementType(request.getMovementType());
         movement.setDetails(request.getDetails());
+        movement.setIdempotencyKey(request.getIdempotencyKey());
         movement.setToolGroupName(toolGroupName);
         movement.setCustomerName(customerName);
         movement.setUserName(getUserName(userId));
-
-        KardexMovementEntity saved = kardexRepository.save(movement);
-        log.info("Movimiento registrado con ID: {}", saved.getId());
-
-        return mapToDTO(saved);
+        return movement;
     }
 
     // Método auxiliar para obtener nombre de usuario
@@ -109,7 +197,7 @@ public class KardexService {
     @Transactional
     public KardexResponseDTO registerLoan(Long toolUnitId, Long toolGroupId, Long customerId,
                                           String customerName, String userName) {
-        ToolUnitModel toolUnit = toolClient.getToolUnit(toolUnitId);
+        ToolUnitModel toolUnit = nameCache.getToolUnit(toolUnitId);
         String toolGroupName = toolUnit != null ? toolUnit.getToolGroupName() : "Desconocido";
 
         KardexMovementEntity m = new KardexMovementEntity();
@@ -211,8 +299,14 @@ public class KardexService {
     }
 
     public List<KardexResponseDTO> getMovementsByMovementType(String movementType) {
-        // Convertir string a enum si es necesario
-        return kardexRepository.findByMovementType(movementType).stream()
+        // La columna es un enum: Hibernate 6 rechaza compararla con un String
+        MovementType type;
+        try {
+            type = MovementType.valueOf(movementType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Tipo de movimiento inválido: " + movementType);
+        }
+        return kardexRepository.findByMovementType(type).stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
@@ -223,6 +317,76 @@ public class KardexService {
                 .collect(Collectors.toList());
     }
 
+    // ===== PAGINACIÓN POR CURSOR (keyset sobre movementDate, id) =====
+
+    public KardexPageDTO getMovementsPage(KardexFilter filter, String after, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime afterDate = FIRST_CURSOR_DATE;
+        long afterId = 0L;
+        if (after != null && !after.isBlank()) {
+            int separator = after.lastIndexOf('_');
+            try {
+                afterDate = LocalDateTime.parse(after.substring(0, separator));
+                afterId = Long.parseLong(after.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Cursor inválido: " + after);
+            }
+        }
+
+        Pageable pageable = PageRequest.of(0, limit);
+        List<KardexMovementEntity> movements;
+        if (filter.getToolUnitId() != null) {
+            movements = kardexRepository.findPageByToolUnitAfter(filter.getToolUnitId(), afterDate, afterId, pageable);
+        } else if (filter.getToolGroupId() != null) {
+            movements = kardexRepository.findPageByToolGroupAfter(filter.getToolGroupId(), afterDate, afterId, pageable);
+        } else if (filter.getCustomerId() != null) {
+            movements = kardexRepository.findPageByCustomerAfter(filter.getCustomerId(), afterDate, afterId, pageable);
+        } else if (filter.getMovementType() != null) {
+            movements = kardexRepository.findPageByTypeAfter(filter.getMovementType(), afterDate, afterId, pageable);
+        } else if (filter.getFrom() != null) {
+            movements = kardexRepository.findPageByDateRangeAfter(filter.getFrom(), filter.getTo(), afterDate, afterId, pageable);
+        } else {
+            movements = kardexRepository.findPageAfter(afterDate, afterId, pageable);
+        }
+
+        List<KardexResponseDTO> items = movements.stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (movements.size() == limit) {
+            KardexMovementEntity last = movements.get(movements.size() - 1);
+            nextCursor = last.getMovementDate() + "_" + last.getId();
+        }
+        return new KardexPageDTO(items, nextCursor);
+    }
+
+    // Recorre los movimientos del filtro en memoria constante: cada entidad se desacopla
+    // del contexto de persistencia apenas se emite
+    @Transactional(readOnly = true)
+    public void streamMovements(KardexFilter filter, Consumer<KardexResponseDTO> sink) {
+        try (Stream<KardexMovementEntity> movements = openStream(filter)) {
+            movements.forEach(movement -> {
+                entityManager.detach(movement);
+                sink.accept(mapToDTO(movement));
+            });
+        }
+    }
+
+    private Stream<KardexMovementEntity> openStream(KardexFilter filter) {
+        if (filter.getToolUnitId() != null) {
+            return kardexRepository.streamByToolUnit(filter.getToolUnitId());
+        } else if (filter.getToolGroupId() != null) {
+            return kardexRepository.streamByToolGroup(filter.getToolGroupId());
+        } else if (filter.getCustomerId() != null) {
+            return kardexRepository.streamByCustomer(filter.getCustomerId());
+        } else if (filter.getMovementType() != null) {
+            return kardexRepository.streamByType(filter.getMovementType());
+        } else if (filter.getFrom() != null) {
+            return kardexRepository.streamByDateRange(filter.getFrom(), filter.getTo());
+        }
+        return kardexRepository.streamAll();
+    }
+
     public KardexResponseDTO getLastMovementByToolUnit(Long toolUnitId) {
         KardexMovementEntity movement = kardexRepository.findTopByToolUnitIdOrderByMovementDateDesc(toolUnitId);
         return movement != null ? mapToDTO(movement) : null;
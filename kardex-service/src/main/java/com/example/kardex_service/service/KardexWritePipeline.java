@@ -0,0 +1,236 @@
+package com.example.kardex_service.service;
+
+import com.example.kardex_service.dto.KardexRequest;
+import com.example.kardex_service.dto.KardexResponseDTO;
+import com.example.kardex_service.dto.MovementTokenDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Registro asíncrono de movimientos (opcional, kardex.async-ingestion.enabled=true): con él activo,
+// POST /movements encola aquí en vez de escribir en la petición.
+// submit() deja la solicitud en un buffer circular acotado y devuelve un token; un único hilo
+// escritor lo vacía y confirma por grupos (hasta max-batch movimientos o window-ms de espera),
+// reutilizando el registro en lote. Si el buffer está lleno, submit() espera offer-timeout-ms
+// y luego rechaza: el productor recibe 503 y reintenta. Al apagar se deja de aceptar y se
+// confirma lo pendiente antes de cerrar la base de datos. Lo encolado vive solo en memoria:
+// un corte abrupto del proceso lo pierde, por eso el modo síncrono sigue siendo el predeterminado.
+@Component
+@ConditionalOnProperty(name = "kardex.async-ingestion.enabled", havingValue = "true")
+@Slf4j
+public class KardexWritePipeline implements SmartLifecycle {
+
+    private final KardexService kardexService;
+    private final BlockingQueue<PendingMovement> buffer;
+    private final Cache<String, MovementTokenDTO> tokens;
+
+    private final int maxBatch;
+    private final long windowMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+
+    private final Counter rejectedCounter;
+    private final DistributionSummary batchSize;
+    private final Timer commitTimer;
+    private final Timer lagTimer;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public KardexWritePipeline(KardexService kardexService,
+                               MeterRegistry meterRegistry,
+                               @Value("${kardex.async-ingestion.capacity:10000}") int capacity,
+                               @Value("${kardex.async-ingestion.max-batch:500}") int maxBatch,
+                               @Value("${kardex.async-ingestion.window-ms:50}") long windowMs,
+                               @Value("${kardex.async-ingestion.offer-timeout-ms:200}") long offerTimeoutMs,
+                               @Value("${kardex.async-ingestion.shutdown-timeout-ms:30000}") long shutdownTimeoutMs,
+                               @Value("${kardex.async-ingestion.token-ttl-ms:600000}") long tokenTtlMs) {
+        this.kardexService = kardexService;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(capacity * 10L)
+                .expireAfterWrite(Duration.ofMillis(tokenTtlMs))
+                .build();
+        this.maxBatch = maxBatch;
+        this.windowMs = windowMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+        meterRegistry.gauge("kardex.ingest.queue.depth", buffer, BlockingQueue::size);
+        this.rejectedCounter = meterRegistry.counter("kardex.ingest.rejected");
+        this.batchSize = DistributionSummary.builder("kardex.ingest.batch.size")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("kardex.ingest.commit.latency")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        // Desde que se aceptó la solicitud hasta que quedó confirmada
+        this.lagTimer = Timer.builder("kardex.ingest.lag")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    // Token del movimiento encolado, o vacío si el buffer sigue lleno (o se está apagando)
+    public Optional<MovementTokenDTO> submit(KardexRequest request) {
+        if (!accepting) {
+            rejectedCounter.increment();
+            return Optional.empty();
+        }
+        MovementTokenDTO token = new MovementTokenDTO(UUID.randomUUID().toString(),
+                MovementTokenDTO.Status.PENDING, null, null);
+        tokens.put(token.getToken(), token);
+        try {
+            if (buffer.offer(new PendingMovement(token.getToken(), request, System.nanoTime()),
+                    offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return Optional.of(token);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        tokens.invalidate(token.getToken());
+        rejectedCounter.increment();
+        return Optional.empty();
+    }
+
+    public Optional<MovementTokenDTO> getStatus(String token) {
+        return Optional.ofNullable(tokens.getIfPresent(token));
+    }
+
+    // ========== HILO ESCRITOR ==========
+
+    private void drainLoop() {
+        List<PendingMovement> group = new ArrayList<>(maxBatch);
+        while (running || !buffer.isEmpty()) {
+            try {
+                collectGroup(group);
+            } catch (InterruptedException e) {
+                // No se interrumpe al escritor desde stop(); si ocurre, se sigue vaciando igual
+                buffer.drainTo(group, maxBatch - group.size());
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+        log.info("Pipeline de Kardex detenido, buffer vacío");
+    }
+
+    // Espera el primer movimiento y luego junta más hasta llenar el grupo o cerrar la ventana
+    private void collectGroup(List<PendingMovement> group) throws InterruptedException {
+        PendingMovement first = buffer.poll(windowMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+        while (group.size() < maxBatch) {
+            if (buffer.drainTo(group, maxBatch - group.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingMovement next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<PendingMovement> group) {
+        batchSize.record(group.size());
+        long start = System.nanoTime();
+        try {
+            List<KardexResponseDTO> saved = kardexService.registerMovements(group.stream()
+                    .map(PendingMovement::request)
+                    .toList());
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (int i = 0; i < group.size(); i++) {
+                complete(group.get(i), saved.get(i).getId(), null);
+            }
+        } catch (Exception e) {
+            // El grupo es todo o nada: se reintenta uno a uno para aislar las solicitudes inválidas
+            log.warn("Falló la confirmación de un grupo de {} movimientos, reintentando uno a uno: {}",
+                    group.size(), e.getMessage());
+            for (PendingMovement pending : group) {
+                try {
+                    complete(pending, kardexService.registerMovement(pending.request()).getId(), null);
+                } catch (Exception single) {
+                    log.error("Movimiento {} descartado: {}", pending.token(), single.getMessage());
+                    complete(pending, null, single.getMessage());
+                }
+            }
+        }
+    }
+
+    private void complete(PendingMovement pending, Long movementId, String error) {
+        lagTimer.record(System.nanoTime() - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+        tokens.put(pending.token(), new MovementTokenDTO(pending.token(),
+                error == null ? MovementTokenDTO.Status.COMMITTED : MovementTokenDTO.Status.FAILED,
+                movementId, error));
+    }
+
+    // ========== CICLO DE VIDA ==========
+
+    @Override
+    public void start() {
+        running = true;
+        accepting = true;
+        writer = new Thread(this::drainLoop, "kardex-writer");
+        writer.start();
+        log.info("Pipeline de Kardex iniciado (capacidad {}, grupos de hasta {} o {} ms)",
+                buffer.remainingCapacity(), maxBatch, windowMs);
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        running = false;
+        // Sin interrupt(): podría cortar una escritura JDBC en curso. El escritor ve running=false
+        // como mucho tras window-ms y sigue confirmando hasta vaciar el buffer.
+        log.info("Deteniendo pipeline de Kardex, {} movimientos pendientes", buffer.size());
+        try {
+            writer.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("El pipeline de Kardex no terminó en {} ms; quedan {} movimientos sin confirmar",
+                    shutdownTimeoutMs, buffer.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Se detiene después del servidor web (ya no llegan solicitudes) y antes que la base de datos
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private record PendingMovement(String token, KardexRequest request, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.kardex_service.service;
+
+import com.example.kardex_service.client.CustomerClient;
+import com.example.kardex_service.client.ToolClient;
+import com.example.kardex_service.model.CustomerModel;
+import com.example.kardex_service.model.ToolUnitModel;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Cachés locales para los datos denormalizados del Kardex: unidad -> grupo (id y nombre) y
+// cliente -> nombre. Casi no cambian, así que se evita la llamada remota en cada movimiento.
+// Si refresh-after-ms > 0, una entrada vieja se sigue sirviendo mientras se recarga en segundo plano.
+@Component
+@Slf4j
+public class NameCache {
+
+    private final LoadingCache<Long, ToolUnitModel> toolUnits;
+    private final LoadingCache<Long, String> customerNames;
+
+    public NameCache(ToolClient toolClient,
+                     CustomerClient customerClient,
+                     MeterRegistry meterRegistry,
+                     @Value("${kardex.name-cache.max-size:10000}") long maxSize,
+                     @Value("${kardex.name-cache.refresh-after-ms:600000}") long refreshAfterMs,
+                     @Value("${kardex.name-cache.expire-after-ms:3600000}") long expireAfterMs) {
+        this.toolUnits = newBuilder(maxSize, refreshAfterMs, expireAfterMs)
+                .build(new CacheLoader<Long, ToolUnitModel>() {
+                    @Override
+                    public ToolUnitModel load(Long toolUnitId) {
+                        return toolClient.getToolUnit(toolUnitId);
+                    }
+
+                    // Los faltantes de un getAll se piden en una sola llamada al endpoint masivo
+                    @Override
+                    public Map<Long, ToolUnitModel> loadAll(Set<? extends Long> toolUnitIds) {
+                        return toolClient.getToolUnitsByIds(new ArrayList<>(toolUnitIds)).stream()
+                                .collect(Collectors.toMap(ToolUnitModel::getId, Function.identity(), (a, b) -> a));
+                    }
+                });
+        this.customerNames = newBuilder(maxSize, refreshAfterMs, expireAfterMs)
+                .build(new CacheLoader<Long, String>() {
+                    @Override
+                    public String load(Long customerId) {
+                        CustomerModel customer = customerClient.getCustomer(customerId);
+                        return customer != null ? customer.getName() : null;
+                    }
+
+                    @Override
+                    public Map<Long, String> loadAll(Set<? extends Long> customerIds) {
+                        return customerClient.getCustomersByIds(new ArrayList<>(customerIds)).stream()
+                                .filter(customer -> customer.getName() != null)
+                                .collect(Collectors.toMap(CustomerModel::getId, CustomerModel::getName, (a, b) -> a));
+                    }
+                });
+
+        // cache.gets{result=hit|miss}, cache.load{result=success|failure}, cache.evictions
+        CaffeineCacheMetrics.monitor(meterRegistry, toolUnits, "kardex.toolUnits");
+        CaffeineCacheMetrics.monitor(meterRegistry, customerNames, "kardex.customers");
+        Gauge.builder("kardex.name-cache.hit-ratio", toolUnits, c -> c.stats().hitRate())
+                .tag("cache", "toolUnits")
+                .register(meterRegistry);
+        Gauge.builder("kardex.name-cache.hit-ratio", customerNames, c -> c.stats().hitRate())
+                .tag("cache", "customers")
+                .register(meterRegistry);
+    }
+
+    private static Caffeine<Object, Object> newBuilder(long maxSize, long refreshAfterMs, long expireAfterMs) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // Límite duro de antigüedad si nadie la lee (o si la recarga sigue fallando)
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats();
+        if (refreshAfterMs > 0) {
+            builder.refreshAfterWrite(Duration.ofMillis(refreshAfterMs));
+        }
+        return builder;
+    }
+
+    // Lanza la excepción del cliente si la unidad no está en caché y Tools Service falla
+    public ToolUnitModel getToolUnit(Long toolUnitId) {
+        return toolUnits.get(toolUnitId);
+    }
+
+    public String getCustomerName(Long customerId) {
+        return customerNames.get(customerId);
+    }
+
+    // Varias unidades con a lo sumo una llamada a Tools Service; las que fallen quedan fuera del mapa
+    public Map<Long, ToolUnitModel> getToolUnits(Collection<Long> toolUnitIds) {
+        Set<Long> ids = toolUnitIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        try {
+            return toolUnits.getAll(ids);
+        } catch (Exception e) {
+            log.warn("No se pudo obtener información de {} herramientas: {}", ids.size(), e.getMessage());
+            return toolUnits.getAllPresent(ids);
+        }
+    }
+
+    public Map<Long, String> getCustomerNames(Collection<Long> customerIds) {
+        Set<Long> ids = customerIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        try {
+            return customerNames.getAll(ids);
+        } catch (Exception e) {
+            log.warn("No se pudo obtener información de {} clientes: {}", ids.size(), e.getMessage());
+            return customerNames.getAllPresent(ids);
+        }
+    }
+}
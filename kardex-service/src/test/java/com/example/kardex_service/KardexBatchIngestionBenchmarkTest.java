@@ -0,0 +1,168 @@
+package com.example.kardex_service;
+
+import com.example.kardex_service.client.CustomerClient;
+import com.example.kardex_service.client.ToolClient;
+import com.example.kardex_service.dto.KardexRequest;
+import com.example.kardex_service.dto.KardexResponseDTO;
+import com.example.kardex_service.entity.MovementType;
+import com.example.kardex_service.model.CustomerModel;
+import com.example.kardex_service.model.ToolUnitModel;
+import com.example.kardex_service.repository.KardexRepository;
+import com.example.kardex_service.service.KardexService;
+import com.example.kardex_service.service.NameCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+// Benchmark de registro de movimientos uno a uno vs. en lote sobre H2 en memoria.
+// Los clientes Feign se simulan; se informa cuántas llamadas remotas haría cada modo
+// (con la caché de nombres vacía al empezar cada uno).
+// Ejecutar con: mvn test -Dtest=KardexBatchIngestionBenchmarkTest -Dbenchmark=true
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({KardexService.class, NameCache.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class KardexBatchIngestionBenchmarkTest {
+
+    private static final int MOVEMENTS = 10_000;
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private KardexService kardexService;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ToolClient toolClient;
+
+    @MockitoBean
+    private CustomerClient customerClient;
+
+    @BeforeEach
+    void stubClients() {
+        when(toolClient.getToolUnit(any())).thenAnswer(inv -> toolUnit(inv.getArgument(0)));
+        when(toolClient.getToolUnitsByIds(anyList())).thenAnswer(inv -> ((List<Long>) inv.getArgument(0)).stream()
+                .map(KardexBatchIngestionBenchmarkTest::toolUnit)
+                .toList());
+        when(customerClient.getCustomer(any())).thenAnswer(inv -> customer(inv.getArgument(0)));
+        when(customerClient.getCustomersByIds(anyList())).thenAnswer(inv -> ((List<Long>) inv.getArgument(0)).stream()
+                .map(KardexBatchIngestionBenchmarkTest::customer)
+                .toList());
+    }
+
+    @Test
+    void singleVersusBatch() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<KardexRequest> requests = requests(MOVEMENTS);
+
+        // Calentamiento
+        requests(200).forEach(kardexService::registerMovement);
+        kardexService.registerMovements(requests(200));
+        kardexRepository.deleteAllInBatch();
+
+        useColdNameCache();
+        statistics.clear();
+        clearInvocations(toolClient, customerClient);
+        long start = System.nanoTime();
+        for (KardexRequest request : requests) {
+            kardexService.registerMovement(request);
+        }
+        long singleMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long singleStatements = statistics.getPrepareStatementCount();
+        long singleRemoteCalls = remoteCalls();
+        report("uno a uno", singleMs, singleStatements, singleRemoteCalls);
+
+        useColdNameCache();
+        statistics.clear();
+        clearInvocations(toolClient, customerClient);
+        start = System.nanoTime();
+        List<Long> ids = new ArrayList<>(MOVEMENTS);
+        for (int from = 0; from < MOVEMENTS; from += BATCH_SIZE) {
+            kardexService.registerMovements(requests.subList(from, Math.min(from + BATCH_SIZE, MOVEMENTS))).stream()
+                    .map(KardexResponseDTO::getId)
+                    .forEach(ids::add);
+        }
+        long batchMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long batchStatements = statistics.getPrepareStatementCount();
+        long batchRemoteCalls = remoteCalls();
+        report("en lote (" + BATCH_SIZE + ")", batchMs, batchStatements, batchRemoteCalls);
+
+        assertEquals(2L * MOVEMENTS, kardexRepository.count());
+        // IDs asignados en el orden recibido
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i) > ids.get(i - 1), "IDs fuera de orden en la posición " + i);
+        }
+        // Como mucho una llamada por servicio y lote; las unidades y clientes ya vistos salen de la caché
+        assertTrue(batchRemoteCalls <= 2L * MOVEMENTS / BATCH_SIZE, "llamadas remotas=" + batchRemoteCalls);
+        assertTrue(batchStatements < singleStatements / 10,
+                "Se esperaban INSERT en lote, sentencias=" + batchStatements);
+    }
+
+    // Caché nueva y vacía en el servicio real (detrás del proxy transaccional)
+    private void useColdNameCache() {
+        NameCache coldCache = new NameCache(toolClient, customerClient, new SimpleMeterRegistry(),
+                10_000, 600_000, 3_600_000);
+        KardexService target = AopTestUtils.getTargetObject(kardexService);
+        ReflectionTestUtils.setField(target, "nameCache", coldCache);
+    }
+
+    private long remoteCalls() {
+        return mockingDetails(toolClient).getInvocations().size()
+                + mockingDetails(customerClient).getInvocations().size();
+    }
+
+    private static void report(String mode, long elapsedMs, long statements, long remoteCalls) {
+        log.info("modo={} movimientos={} tiempo={}ms movimientos/s={} sentencias preparadas={} llamadas remotas={}",
+                mode, MOVEMENTS, elapsedMs, MOVEMENTS * 1000L / elapsedMs, statements, remoteCalls);
+    }
+
+    private static List<KardexRequest> requests(int count) {
+        List<KardexRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(new KardexRequest(MovementType.LOAN, (long) (i % 1_000) + 1, (long) (i % 50) + 1,
+                    (long) (i % 200) + 1, "Préstamo benchmark " + i, "bench", null));
+        }
+        return requests;
+    }
+
+    private static ToolUnitModel toolUnit(Long id) {
+        return new ToolUnitModel(id, "LOANED", id % 50 + 1, 1L, "Grupo " + (id % 50 + 1), 1000.0, 2000.0, 50000.0);
+    }
+
+    private static CustomerModel customer(Long id) {
+        return new CustomerModel(id, "Cliente " + id, "1-9", "ACTIVE", false, false, false, 0);
+    }
+}
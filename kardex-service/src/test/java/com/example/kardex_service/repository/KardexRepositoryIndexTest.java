@@ -0,0 +1,271 @@
+package com.example.kardex_service.repository;
+
+import com.example.kardex_service.entity.KardexMovementEntity;
+import com.example.kardex_service.entity.MovementType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Regresión de índices de kardex_movements sobre H2 en memoria: cada consulta de KardexRepository
+// debe resolverse con su índice (EXPLAIN del SQL que genera Hibernate). Por defecto se siembra una
+// tabla chica y solo se revisa el plan; con -Dbenchmark=true se siembra un millón de movimientos y
+// además se exige un presupuesto de latencia (mejor de varias ejecuciones), que en CI compartido
+// sería inestable. Filas configurables con -Dkardex.index-test.rows=N.
+// LAZY_QUERY_EXECUTION: H2 devuelve filas a medida que recorre el índice en vez de materializar el
+// resultado completo, como hace MySQL al hacer streaming; sin ello el tiempo hasta la primera fila
+// de una exportación mide el tamaño de la tabla y no el plan
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:kardex-index;LAZY_QUERY_EXECUTION=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.example.kardex_service.repository.KardexRepositoryIndexTest$LastStatement"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KardexRepositoryIndexTest {
+
+    private static final boolean BENCHMARK = Boolean.getBoolean("benchmark");
+    private static final int ROWS = Integer.getInteger("kardex.index-test.rows", BENCHMARK ? 1_000_000 : 20_000);
+    private static final int RUNS = 5;
+    private static final long NARROW_BUDGET_MS = 100;
+    private static final long WIDE_BUDGET_MS = 300;
+
+    // Un movimiento por segundo desde BASE; 20.000 unidades, 500 grupos, 5.000 clientes, 6 tipos
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime FROM = BASE.plusSeconds(ROWS / 3);
+    private static final LocalDateTime TO = FROM.plusHours(1);
+    private static final Pageable PAGE = PageRequest.of(0, 100);
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Guarda el último SQL que Hibernate envía, para pedirle a H2 su plan
+    public static class LastStatement implements StatementInspector {
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            sql = statement;
+            return statement;
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        // Los índices (los que Hibernate creó a partir de la entidad) se reconstruyen después de la
+        // carga: mantenerlos fila a fila durante la carga masiva multiplica el tiempo de arranque
+        List<String> indexDdl = jdbcTemplate.queryForList(
+                "SELECT 'CREATE INDEX ' || i.INDEX_NAME || ' ON KARDEX_MOVEMENTS(' || " +
+                        "LISTAGG(c.COLUMN_NAME, ', ') WITHIN GROUP (ORDER BY c.ORDINAL_POSITION) || ')' " +
+                        "FROM INFORMATION_SCHEMA.INDEXES i JOIN INFORMATION_SCHEMA.INDEX_COLUMNS c " +
+                        "ON c.TABLE_NAME = i.TABLE_NAME AND c.INDEX_NAME = i.INDEX_NAME " +
+                        "WHERE i.TABLE_NAME = 'KARDEX_MOVEMENTS' AND i.INDEX_TYPE_NAME = 'INDEX' " +
+                        "GROUP BY i.INDEX_NAME", String.class);
+        assertEquals(5, indexDdl.size(), "Índices declarados en KardexMovementEntity: " + indexDdl);
+        indexDdl.forEach(ddl -> jdbcTemplate.execute("DROP INDEX " + ddl.split(" ")[2]));
+
+        jdbcTemplate.execute("INSERT INTO kardex_movements (id, tool_unit_id, tool_group_id, customer_id, user_id, " +
+                "movement_type, movement_date, tool_group_name, customer_name, user_name, created_at) " +
+                "SELECT X, MOD(X, 20000) + 1, MOD(X, 500) + 1, " +
+                "CASE WHEN MOD(X, 4) = 0 THEN NULL ELSE MOD(X, 5000) + 1 END, 'Sistema', " +
+                "CASE MOD(X, 6) WHEN 0 THEN 'REGISTRY' WHEN 1 THEN 'LOAN' WHEN 2 THEN 'RETURN' " +
+                "WHEN 3 THEN 'REPAIR' WHEN 4 THEN 'RE_ENTRY' ELSE 'RETIRE' END, " +
+                "DATEADD('SECOND', X, TIMESTAMP '2026-01-01 00:00:00'), 'Grupo', 'N/A', 'SISTEMA', CURRENT_TIMESTAMP " +
+                "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+
+        indexDdl.forEach(jdbcTemplate::execute);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    // ===== Consultas derivadas y JPQL =====
+
+    @Test
+    void findByToolUnitId() {
+        assertIndexed("IDX_KARDEX_UNIT_DATE", NARROW_BUDGET_MS, () -> kardexRepository.findByToolUnitId(5L), 5L);
+    }
+
+    @Test
+    void findByToolGroupId() {
+        assertIndexed("IDX_KARDEX_GROUP_DATE", WIDE_BUDGET_MS, () -> kardexRepository.findByToolGroupId(7L), 7L);
+    }
+
+    @Test
+    void findByCustomerId() {
+        assertIndexed("IDX_KARDEX_CUSTOMER_DATE", NARROW_BUDGET_MS, () -> kardexRepository.findByCustomerId(42L), 42L);
+    }
+
+    @Test
+    void findByMovementDateBetween() {
+        assertIndexed("IDX_KARDEX_DATE", WIDE_BUDGET_MS,
+                () -> kardexRepository.findByMovementDateBetween(FROM, TO), FROM, TO);
+    }
+
+    @Test
+    void findByToolUnitIdAndDateRange() {
+        assertIndexed("IDX_KARDEX_UNIT_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findByToolUnitIdAndDateRange(5L, FROM, TO), 5L, FROM, TO);
+    }
+
+    @Test
+    void findByToolGroupIdAndDateRange() {
+        assertIndexed("IDX_KARDEX_GROUP_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findByToolGroupIdAndDateRange(7L, FROM, TO), 7L, FROM, TO);
+    }
+
+    @Test
+    void findTopByToolUnitIdOrderByMovementDateDesc() {
+        KardexMovementEntity last = assertIndexed("IDX_KARDEX_UNIT_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findTopByToolUnitIdOrderByMovementDateDesc(5L), 5L, 1);
+        assertEquals(5L, last.getToolUnitId());
+    }
+
+    // Devuelve un sexto de la tabla: se exige el índice pero no hay presupuesto que tenga sentido;
+    // la variante acotada es findPageByTypeAfter
+    @Test
+    void findByMovementType() {
+        assertIndexed("IDX_KARDEX_TYPE_DATE", Long.MAX_VALUE,
+                () -> kardexRepository.findByMovementType(MovementType.LOAN), "LOAN");
+    }
+
+    @Test
+    void countByMovementType() {
+        Long count = assertIndexed("IDX_KARDEX_TYPE_DATE", WIDE_BUDGET_MS,
+                () -> kardexRepository.countByMovementType(MovementType.LOAN), "LOAN");
+        assertTrue(count > 0);
+    }
+
+    // ===== Paginación por cursor (keyset sobre movementDate, id) =====
+
+    @Test
+    void findPageAfter() {
+        List<KardexMovementEntity> page = assertIndexed("IDX_KARDEX_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findPageAfter(FROM, 0L, PAGE), FROM, FROM, 0L, PAGE.getPageSize());
+        assertEquals(PAGE.getPageSize(), page.size());
+    }
+
+    @Test
+    void findPageByToolUnitAfter() {
+        assertIndexed("IDX_KARDEX_UNIT_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findPageByToolUnitAfter(5L, FROM, 0L, PAGE), 5L, FROM, FROM, 0L, PAGE.getPageSize());
+    }
+
+    @Test
+    void findPageByToolGroupAfter() {
+        assertIndexed("IDX_KARDEX_GROUP_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findPageByToolGroupAfter(7L, FROM, 0L, PAGE), 7L, FROM, FROM, 0L, PAGE.getPageSize());
+    }
+
+    @Test
+    void findPageByCustomerAfter() {
+        assertIndexed("IDX_KARDEX_CUSTOMER_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findPageByCustomerAfter(42L, FROM, 0L, PAGE), 42L, FROM, FROM, 0L, PAGE.getPageSize());
+    }
+
+    @Test
+    void findPageByTypeAfter() {
+        assertIndexed("IDX_KARDEX_TYPE_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findPageByTypeAfter(MovementType.LOAN, FROM, 0L, PAGE),
+                "LOAN", FROM, FROM, 0L, PAGE.getPageSize());
+    }
+
+    @Test
+    void findPageByDateRangeAfter() {
+        assertIndexed("IDX_KARDEX_DATE", NARROW_BUDGET_MS,
+                () -> kardexRepository.findPageByDateRangeAfter(FROM, TO, FROM, 0L, PAGE),
+                FROM, TO, FROM, FROM, 0L, PAGE.getPageSize());
+    }
+
+    // ===== Exportación en streaming: plan y tiempo hasta las primeras 100 filas =====
+
+    @Test
+    void streamAll() {
+        assertStreamIndexed("IDX_KARDEX_DATE", () -> kardexRepository.streamAll());
+    }
+
+    @Test
+    void streamByToolUnit() {
+        assertStreamIndexed("IDX_KARDEX_UNIT_DATE", () -> kardexRepository.streamByToolUnit(5L), 5L);
+    }
+
+    @Test
+    void streamByToolGroup() {
+        assertStreamIndexed("IDX_KARDEX_GROUP_DATE", () -> kardexRepository.streamByToolGroup(7L), 7L);
+    }
+
+    @Test
+    void streamByCustomer() {
+        assertStreamIndexed("IDX_KARDEX_CUSTOMER_DATE", () -> kardexRepository.streamByCustomer(42L), 42L);
+    }
+
+    @Test
+    void streamByType() {
+        assertStreamIndexed("IDX_KARDEX_TYPE_DATE", () -> kardexRepository.streamByType(MovementType.LOAN), "LOAN");
+    }
+
+    @Test
+    void streamByDateRange() {
+        assertStreamIndexed("IDX_KARDEX_DATE", () -> kardexRepository.streamByDateRange(FROM, TO), FROM, TO);
+    }
+
+    // ========== AUXILIARES ==========
+
+    // Ejecuta la consulta, revisa con EXPLAIN el SQL generado (mismos parámetros, en orden)
+    // y, en modo benchmark, mide la mejor de RUNS ejecuciones en caliente contra el presupuesto
+    private <T> T assertIndexed(String index, long budgetMs, Supplier<T> query, Object... params) {
+        T result = query.get();
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + LastStatement.sql, String.class, params);
+        assertTrue(plan.contains("PUBLIC." + index), "Se esperaba " + index + " en el plan:\n" + plan);
+        assertFalse(plan.contains("tableScan"), "Recorrido completo de la tabla:\n" + plan);
+
+        if (!BENCHMARK) {
+            return result;
+        }
+
+        long bestMs = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            bestMs = Math.min(bestMs, (System.nanoTime() - start) / 1_000_000);
+        }
+        assertTrue(bestMs <= budgetMs, "Latencia " + bestMs + " ms supera el presupuesto de " + budgetMs + " ms");
+        return result;
+    }
+
+    private void assertStreamIndexed(String index, Supplier<Stream<KardexMovementEntity>> query, Object... params) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertIndexed(index, NARROW_BUDGET_MS, () -> readOnly.execute(status -> {
+            try (Stream<KardexMovementEntity> movements = query.get()) {
+                return movements.limit(PAGE.getPageSize()).count();
+            }
+        }), params);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.kardex_service.service;
+
+import com.example.kardex_service.dto.KardexRequest;
+import com.example.kardex_service.dto.KardexResponseDTO;
+import com.example.kardex_service.dto.MovementTokenDTO;
+import com.example.kardex_service.entity.MovementType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Buffer, hilo escritor y tokens del registro asíncrono, con KardexService simulado
+class KardexWritePipelineTest {
+
+    private final KardexService kardexService = mock(KardexService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final CountDownLatch commitStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseCommit = new CountDownLatch(1);
+
+    private KardexWritePipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        releaseCommit.countDown();
+        if (pipeline != null && pipeline.isRunning()) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void fullBufferRejectsAfterTheOfferTimeout() throws Exception {
+        blockFirstCommit();
+        pipeline = start(2);
+
+        MovementTokenDTO first = pipeline.submit(request(1L)).orElseThrow();
+        assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+        // El escritor está ocupado con el primero: dos más llenan el buffer y el siguiente se rechaza
+        assertTrue(pipeline.submit(request(2L)).isPresent());
+        assertTrue(pipeline.submit(request(3L)).isPresent());
+        assertFalse(pipeline.submit(request(4L)).isPresent());
+
+        assertEquals(1.0, meterRegistry.get("kardex.ingest.rejected").counter().count());
+        assertEquals(MovementTokenDTO.Status.PENDING, pipeline.getStatus(first.getToken()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void stopDrainsPendingMovementsBeforeReturning() throws Exception {
+        blockFirstCommit();
+        pipeline = start(100);
+
+        List<MovementTokenDTO> tokens = new ArrayList<>();
+        tokens.add(pipeline.submit(request(1L)).orElseThrow());
+        assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+        for (long unit = 2; unit <= 20; unit++) {
+            tokens.add(pipeline.submit(request(unit)).orElseThrow());
+        }
+
+        new Thread(() -> {
+            sleep(100);
+            releaseCommit.countDown();
+        }).start();
+        pipeline.stop();
+
+        assertFalse(pipeline.isRunning());
+        for (MovementTokenDTO token : tokens) {
+            MovementTokenDTO status = pipeline.getStatus(token.getToken()).orElseThrow();
+            assertEquals(MovementTokenDTO.Status.COMMITTED, status.getStatus());
+            assertNotNull(status.getMovementId());
+        }
+        // Después de apagar ya no se acepta nada
+        assertFalse(pipeline.submit(request(21L)).isPresent());
+    }
+
+    @Test
+    void failedGroupIsRetriedOneByOneAndOnlyTheInvalidMovementFails() throws Exception {
+        when(kardexService.registerMovements(anyList())).thenThrow(new RuntimeException("Unidad no encontrada"));
+        when(kardexService.registerMovement(any())).thenAnswer(invocation -> {
+            KardexRequest request = invocation.getArgument(0);
+            if (request.getToolUnitId() == 99L) {
+                throw new RuntimeException("Unidad no encontrada");
+            }
+            return response(nextId.getAndIncrement());
+        });
+        pipeline = start(100);
+
+        MovementTokenDTO valid = pipeline.submit(request(1L)).orElseThrow();
+        MovementTokenDTO invalid = pipeline.submit(request(99L)).orElseThrow();
+
+        MovementTokenDTO committed = awaitCompletion(valid.getToken());
+        MovementTokenDTO failed = awaitCompletion(invalid.getToken());
+        assertEquals(MovementTokenDTO.Status.COMMITTED, committed.getStatus());
+        assertNotNull(committed.getMovementId());
+        assertEquals(MovementTokenDTO.Status.FAILED, failed.getStatus());
+        assertEquals("Unidad no encontrada", failed.getMessage());
+    }
+
+    private KardexWritePipeline start(int capacity) {
+        KardexWritePipeline started = new KardexWritePipeline(kardexService, meterRegistry,
+                capacity, 1, 10, 50, 5_000, 60_000);
+        started.start();
+        return started;
+    }
+
+    // El primer grupo queda retenido en registerMovements hasta liberar releaseCommit
+    private void blockFirstCommit() {
+        when(kardexService.registerMovements(anyList())).thenAnswer(invocation -> {
+            commitStarted.countDown();
+            releaseCommit.await();
+            List<KardexRequest> requests = invocation.getArgument(0);
+            return requests.stream().map(request -> response(nextId.getAndIncrement())).toList();
+        });
+    }
+
+    private MovementTokenDTO awaitCompletion(String token) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            MovementTokenDTO status = pipeline.getStatus(token).orElseThrow();
+            if (status.getStatus() != MovementTokenDTO.Status.PENDING) {
+                return status;
+            }
+            sleep(10);
+        }
+        return fail("El movimiento " + token + " sigue pendiente");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static KardexRequest request(Long toolUnitId) {
+        return new KardexRequest(MovementType.LOAN, toolUnitId, 1L, 1L, "Préstamo", "tester", null);
+    }
+
+    private static KardexResponseDTO response(Long id) {
+        KardexResponseDTO response = new KardexResponseDTO();
+        response.setId(id);
+        return response;
+    }
+}
@@ -4,6 +4,10 @@ import com.example.loans_service.model.CustomerModel;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 @FeignClient(name = "customers-service", path = "/api/customers")
 public interface CustomerClient {
@@ -22,4 +26,7 @@ public interface CustomerClient {
 
     @GetMapping("/{id}/validate-loan")
     CustomerModel validateForLoan(@PathVariable("id") Long id);
+
+    @PostMapping("/batch")
+    List<CustomerModel> getCustomersByIds(@RequestBody List<Long> ids);
 }
\ No newline at end of file
@@ -6,10 +6,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "kardex-service", path = "/api/kardex")
 public interface KardexClient {
 
     @PostMapping("/movements")
     void registerMovement(@RequestBody KardexRequest request);
 
+    @PostMapping("/movements/batch")
+    void registerMovements(@RequestBody List<KardexRequest> requests);
+
 }
\ No newline at end of file
@@ -4,9 +4,13 @@ import com.example.loans_service.model.ToolUnitModel;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 // En Loan Service - ToolClient.java
 @FeignClient(name = "tools-service", path = "/api/tools/units")
 public interface ToolClient {
@@ -23,9 +27,20 @@ public interface ToolClient {
     @GetMapping("/groups/{groupId}/available")
     ToolUnitModel getAvailableUnit(@PathVariable("groupId") Long toolGroupId);
 
+    @PostMapping("/groups/{groupId}/reserve")
+    ToolUnitModel reserveUnit(@PathVariable("groupId") Long toolGroupId,
+                              @RequestParam(value = "userName", required = false) String userName);
+
+    @PostMapping("/groups/reserve")
+    List<ToolUnitModel> reserveUnits(@RequestBody List<Long> toolGroupIds,
+                                     @RequestParam(value = "userName", required = false) String userName);
+
     @GetMapping("/{id}")
     ToolUnitModel getToolUnit(@PathVariable("id") Long id);
 
+    @PostMapping("/batch")
+    List<ToolUnitModel> getToolUnitsByIds(@RequestBody List<Long> ids);
+
     @PutMapping("/{id}/status")
     void updateStatus(@PathVariable("id") Long id,
                       @RequestParam String status,
@@ -1,10 +1,10 @@
 package com.example.loans_service.config;
 
-import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Configuration;
 
+// Los clientes Feign se habilitan en LoansServiceApplication; repetir @EnableFeignClients aquí
+// registra cada cliente dos veces y el contexto no arranca
 @Configuration
-@EnableFeignClients(basePackages = "com.example.loans_service.client")
 public class FeignConfig {
     // Configuración de Feign
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.example.loans_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class LoanCheckConfig {
+
+    // Pool acotado para las validaciones previas a un préstamo (cliente, límites, herramienta)
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService loanCheckExecutor(@Value("${loans.checks.pool-size:16}") int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "loan-check-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(poolSize, threadFactory);
+    }
+}
@@ -1,16 +1,29 @@
 package com.example.loans_service.controller;
 
+import com.example.loans_service.dto.BatchLoanRequestDTO;
+import com.example.loans_service.dto.EligibilitySummaryDTO;
 import com.example.loans_service.dto.LoanActiveDTO;
+import com.example.loans_service.dto.LoanPageDTO;
 import com.example.loans_service.dto.LoanRequestDTO;
 import com.example.loans_service.dto.LoanResponseDTO;
 import com.example.loans_service.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/loans")
@@ -19,6 +32,7 @@ import java.util.List;
 public class LoanController {
 
     private final LoanService loanService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<LoanResponseDTO> registerLoan(@RequestBody LoanRequestDTO request,
@@ -27,6 +41,13 @@ public class LoanController {
         return ResponseEntity.ok(loan);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<LoanResponseDTO>> registerLoans(@RequestBody BatchLoanRequestDTO request,
+                                                               @RequestParam(required = false) String userName) {
+        List<LoanResponseDTO> loans = loanService.registerLoans(request, userName);
+        return ResponseEntity.ok(loans);
+    }
+
     @PutMapping("/{id}/return")
     public ResponseEntity<LoanResponseDTO> returnLoan(
             @PathVariable Long id,
@@ -86,14 +107,68 @@ public class LoanController {
         return ResponseEntity.ok(loans);
     }
 
+    // ===== Paginación por cursor: ?after=<último id recibido>&size=N =====
+
+    @GetMapping("/active/page")
+    public ResponseEntity<LoanPageDTO> getActiveLoansPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(loanService.getActiveLoansPage(after, size));
+    }
+
+    @GetMapping("/overdue/page")
+    public ResponseEntity<LoanPageDTO> getOverdueLoansPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(loanService.getOverdueLoansPage(after, size));
+    }
+
+    @GetMapping("/all-closed/page")
+    public ResponseEntity<LoanPageDTO> getClosedLoansPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(loanService.getClosedLoansPage(after, size));
+    }
+
+    // Historial completo como NDJSON (un préstamo por línea), en memoria constante
+    @GetMapping(value = "/all-closed/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllClosedLoans() {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            loanService.streamClosedLoans(loan -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(loan));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
 
     //Datos Customer
     @GetMapping("/{customerId}/active-count")
     public ResponseEntity<Integer> getActiveLoansCount(@PathVariable Long customerId) {
-        int count = loanService.getActiveLoans().size(); // o usar query directa
+        int count = (int) loanService.getActiveLoansCount(customerId);
         return ResponseEntity.ok(count);
     }
 
+    // Préstamos activos de varios clientes (dashboards): { customerId: count }
+    @PostMapping("/active-counts")
+    public ResponseEntity<Map<Long, Long>> getActiveLoansCounts(@RequestBody List<Long> customerIds) {
+        return ResponseEntity.ok(loanService.getActiveLoansCounts(customerIds));
+    }
+
+    // Validación de cliente en una sola llamada (reemplaza los cuatro endpoints siguientes)
+    @GetMapping("/{customerId}/eligibility-summary")
+    public ResponseEntity<EligibilitySummaryDTO> getEligibilitySummary(@PathVariable Long customerId) {
+        return ResponseEntity.ok(loanService.getEligibilitySummary(customerId));
+    }
+
     @GetMapping("/{customerId}/overdue-count")
     public ResponseEntity<Long> getOverdueLoansCount(@PathVariable Long customerId) {
         long count = loanService.getOverdueLoansCount(customerId);
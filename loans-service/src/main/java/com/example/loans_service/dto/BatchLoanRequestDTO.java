@@ -0,0 +1,16 @@
+package com.example.loans_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLoanRequestDTO {
+    private Long customerId;
+    private List<Long> toolGroupIds;
+    private String dueDate; // Formato: "yyyy-MM-dd'T'HH:mm:ss"
+}
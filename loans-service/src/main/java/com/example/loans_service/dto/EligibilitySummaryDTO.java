@@ -0,0 +1,16 @@
+package com.example.loans_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resumen para validar a un cliente antes de prestar (Customer Service)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EligibilitySummaryDTO {
+    private Long activeLoansCount;
+    private Long overdueLoansCount;
+    private Double unpaidFinesSum;
+    private Double unpaidDamageSum;
+}
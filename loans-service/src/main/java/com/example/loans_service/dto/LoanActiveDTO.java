@@ -18,4 +18,13 @@ public class LoanActiveDTO {
     private Double fineAmount;
     private Double damageCharge;
     private String status;
+    private Long daysOverdue; // Precalculado por el job de multas; 0 si no está vencido
+
+    // Constructor para compatibilidad
+    public LoanActiveDTO(Long id, String customerName, String toolName, LocalDateTime loanDate,
+                         LocalDateTime dueDate, LocalDateTime returnDate, Double fineAmount,
+                         Double damageCharge, String status) {
+        this(id, customerName, toolName, loanDate, dueDate, returnDate, fineAmount,
+                damageCharge, status, 0L);
+    }
 }
\ No newline at end of file
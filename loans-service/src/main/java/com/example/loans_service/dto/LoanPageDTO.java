@@ -0,0 +1,15 @@
+package com.example.loans_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Página por cursor (keyset sobre id): nextCursor es null cuando no hay más resultados
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanPageDTO {
+    private List<LoanActiveDTO> items;
+    private Long nextCursor;
+}
@@ -0,0 +1,59 @@
+package com.example.loans_service.entity;
+
+import com.example.loans_service.model.MovementType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Movimiento de Kardex pendiente, escrito en la misma transacción que el préstamo
+@Entity
+@Table(name = "kardex_outbox", indexes = {
+        @Index(name = "idx_outbox_status_id", columnList = "status, id"),
+        @Index(name = "idx_outbox_unit_status", columnList = "tool_unit_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexOutboxEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MovementType movementType;
+
+    @Column(name = "tool_unit_id", nullable = false)
+    private Long toolUnitId;
+
+    @Column(name = "tool_group_id")
+    private Long toolGroupId;
+
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Column(columnDefinition = "TEXT")
+    private String details;
+
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    private LocalDateTime sentAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+}
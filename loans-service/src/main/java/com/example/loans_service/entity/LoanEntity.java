@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
@@ -25,6 +26,13 @@ public class LoanEntity {
     @Column(name = "tool_group_id", nullable = false)
     private Long toolGroupId;
 
+    // Snapshot de nombres al momento del préstamo, para listar sin llamadas remotas
+    @Column(name = "customer_name")
+    private String customerName;
+
+    @Column(name = "tool_name")
+    private String toolName;
+
     @Column(nullable = false)
     private LocalDateTime loanDate = LocalDateTime.now();
 
@@ -39,6 +47,20 @@ public class LoanEntity {
 
     private Double damageCharge = 0.0;
 
+    // Tarifa de multa vigente al prestar, para acumular multas sin consultar Tool Service
+    @Column(name = "daily_fine_rate")
+    private Double dailyFineRate;
+
+    // Acumulado diario de atraso (OverdueFineAccrualJob); accruedOn evita reprocesar el mismo día
+    @Column(name = "days_overdue")
+    private Long daysOverdue;
+
+    @Column(name = "accrued_fine")
+    private Double accruedFine;
+
+    @Column(name = "accrued_on")
+    private LocalDate accruedOn;
+
     @Enumerated(EnumType.STRING)
     private LoanStatus status = LoanStatus.ACTIVE;
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.loans_service.entity;
+
+public enum OutboxStatus {
+    PENDING,    // Pendiente de envío a Kardex
+    SENT,       // Enviado
+    FAILED      // Descartado tras agotar reintentos
+}
@@ -14,5 +14,6 @@ public class KardexRequest {
     private Long customerId;
     private String details;
     private String userId;
+    private String idempotencyKey; // Kardex ignora un reenvío con una clave que ya registró
 }
 
@@ -0,0 +1,29 @@
+package com.example.loans_service.repository;
+
+import com.example.loans_service.entity.KardexOutboxEntity;
+import com.example.loans_service.entity.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface KardexOutboxRepository extends JpaRepository<KardexOutboxEntity, Long> {
+
+    // Reclamo de pendientes listos para enviar, en orden de creación. Se excluyen las unidades que
+    // aún tienen un movimiento anterior esperando reintento (o reclamado por otra réplica), para
+    // respetar el orden por unidad. SKIP LOCKED: dos réplicas nunca toman las mismas filas.
+    @Query(value = "SELECT * FROM kardex_outbox o WHERE o.status = 'PENDING' AND o.next_attempt_at <= :now " +
+            "AND NOT EXISTS (SELECT 1 FROM kardex_outbox p WHERE p.status = 'PENDING' " +
+            "AND p.tool_unit_id = o.tool_unit_id AND p.id < o.id AND p.next_attempt_at > :now) " +
+            "ORDER BY o.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<KardexOutboxEntity> lockReadyBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByStatus(OutboxStatus status);
+
+    @Query("SELECT MIN(o.createdAt) FROM KardexOutboxEntity o WHERE o.status = com.example.loans_service.entity.OutboxStatus.PENDING")
+    LocalDateTime findOldestPendingCreatedAt();
+}
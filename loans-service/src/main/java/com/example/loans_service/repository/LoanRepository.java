@@ -1,15 +1,26 @@
 package com.example.loans_service.repository;
 
+import com.example.loans_service.dto.EligibilitySummaryDTO;
 import com.example.loans_service.entity.LoanEntity;
 import com.example.loans_service.entity.LoanStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
@@ -17,9 +28,17 @@ public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
     // Contar préstamos activos de un cliente
     long countByCustomerIdAndReturnDateIsNull(Long customerId);
 
+    // Préstamos activos de varios clientes en una sola consulta: filas [customerId, count]
+    @Query("SELECT l.customerId, COUNT(l) FROM LoanEntity l WHERE l.returnDate IS NULL " +
+            "AND l.customerId IN :customerIds GROUP BY l.customerId")
+    List<Object[]> countActiveByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
     // Verificar si cliente ya tiene esta herramienta en préstamo
     boolean existsByCustomerIdAndToolGroupIdAndReturnDateIsNull(Long customerId, Long toolGroupId);
 
+    // Verificar si cliente ya tiene alguna de estas herramientas en préstamo (préstamo múltiple)
+    boolean existsByCustomerIdAndToolGroupIdInAndReturnDateIsNull(Long customerId, Collection<Long> toolGroupIds);
+
     // Préstamos activos (sin devolución)
     List<LoanEntity> findByReturnDateIsNull();
 
@@ -40,12 +59,76 @@ public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
     // Método básico como respaldo
     List<LoanEntity> findByReturnDateIsNotNull();
 
+    // ===== Paginación por cursor (keyset sobre id) =====
+    @Query("SELECT l FROM LoanEntity l WHERE l.returnDate IS NULL AND l.id > :afterId ORDER BY l.id")
+    List<LoanEntity> findActiveAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT l FROM LoanEntity l WHERE l.returnDate IS NULL AND l.dueDate < :now AND l.id > :afterId ORDER BY l.id")
+    List<LoanEntity> findOverdueAfter(@Param("now") LocalDateTime now, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT l FROM LoanEntity l WHERE l.returnDate IS NOT NULL AND l.id > :afterId ORDER BY l.id")
+    List<LoanEntity> findClosedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Vencidos aún no procesados hoy por el job de multas, por bloques de id
+    @Query("SELECT l FROM LoanEntity l WHERE l.returnDate IS NULL AND l.dueDate < :now " +
+            "AND (l.accruedOn IS NULL OR l.accruedOn < :today) AND l.id > :afterId ORDER BY l.id")
+    List<LoanEntity> findOverdueToAccrueAfter(@Param("now") LocalDateTime now,
+                                              @Param("today") LocalDate today,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    // Préstamos antiguos sin snapshot de nombres (backfill por rangos de id): el rango acota la
+    // lectura por clave primaria, sin índice sobre las columnas de nombre
+    @Query("SELECT l FROM LoanEntity l WHERE l.id > :fromId AND l.id <= :toId " +
+            "AND (l.customerName IS NULL OR l.toolName IS NULL) ORDER BY l.id")
+    List<LoanEntity> findMissingSnapshotBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT MAX(l.id) FROM LoanEntity l")
+    Long findMaxId();
+
+    // Streaming del historial cerrado; con MySQL, Integer.MIN_VALUE hace que el driver entregue fila a fila
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT l FROM LoanEntity l WHERE l.returnDate IS NOT NULL ORDER BY l.id")
+    Stream<LoanEntity> streamClosed();
+
     long countByCustomerIdAndReturnDateIsNullAndDueDateBefore(Long customerId, LocalDateTime date);
 
+    // Todo lo que Customer Service necesita para validar, en una sola pasada sobre los préstamos del cliente
+    @Query("SELECT new com.example.loans_service.dto.EligibilitySummaryDTO(" +
+            "COALESCE(SUM(CASE WHEN l.returnDate IS NULL THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN l.returnDate IS NULL AND l.dueDate < :now THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN l.returnDate IS NOT NULL AND l.fineAmount > 0 THEN l.fineAmount ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN l.returnDate IS NOT NULL AND l.damageCharge > 0 THEN l.damageCharge ELSE 0.0 END), 0.0)) " +
+            "FROM LoanEntity l WHERE l.customerId = :customerId")
+    EligibilitySummaryDTO getEligibilitySummary(@Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+
     @Query("SELECT COALESCE(SUM(l.fineAmount), 0) FROM LoanEntity l WHERE l.customerId = :customerId AND l.returnDate IS NOT NULL AND l.fineAmount > 0")
     Double sumUnpaidFinesByCustomer(@Param("customerId") Long customerId);
 
     @Query("SELECT COALESCE(SUM(l.damageCharge), 0) FROM LoanEntity l WHERE l.customerId = :customerId AND l.returnDate IS NOT NULL AND l.damageCharge > 0")
     Double sumUnpaidDamageByCustomer(@Param("customerId") Long customerId);
 
-}
\ No newline at end of file
+
+    // Solo las columnas del acumulado y solo si sigue sin devolver: un préstamo devuelto mientras
+    // el job trabajaba con su copia no se reabre ni pierde la multa cobrada
+    @Transactional
+    @Modifying
+    @Query("UPDATE LoanEntity l SET l.daysOverdue = :daysOverdue, l.accruedFine = :accruedFine, " +
+            "l.accruedOn = :accruedOn, l.dailyFineRate = :dailyFineRate WHERE l.id = :id AND l.returnDate IS NULL")
+    int updateAccrual(@Param("id") Long id,
+                      @Param("daysOverdue") Long daysOverdue,
+                      @Param("accruedFine") Double accruedFine,
+                      @Param("accruedOn") LocalDate accruedOn,
+                      @Param("dailyFineRate") Double dailyFineRate);
+
+    // Solo las columnas del snapshot y solo las que siguen vacías: no pisa una devolución ni un
+    // nombre escrito entre la lectura del backfill y esta escritura
+    @Transactional
+    @Modifying
+    @Query("UPDATE LoanEntity l SET l.customerName = COALESCE(l.customerName, :customerName), " +
+            "l.toolName = COALESCE(l.toolName, :toolName) " +
+            "WHERE l.id = :id AND (l.customerName IS NULL OR l.toolName IS NULL)")
+    int updateSnapshotNames(@Param("id") Long id,
+                            @Param("customerName") String customerName,
+                            @Param("toolName") String toolName);
+}
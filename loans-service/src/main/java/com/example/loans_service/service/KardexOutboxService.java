@@ -0,0 +1,230 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.KardexClient;
+import com.example.loans_service.entity.KardexOutboxEntity;
+import com.example.loans_service.entity.OutboxStatus;
+import com.example.loans_service.model.KardexRequest;
+import com.example.loans_service.repository.KardexOutboxRepository;
+import feign.FeignException;
+import feign.RetryableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class KardexOutboxService {
+
+    private final KardexOutboxRepository outboxRepository;
+    private final KardexClient kardexClient;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter sentCounter;
+    private final Counter retryCounter;
+    private final Counter deadCounter;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @Value("${loans.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${loans.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${loans.outbox.base-backoff-ms:1000}")
+    private long baseBackoffMs;
+
+    // Debe superar el timeout de la llamada a Kardex (Feign por defecto: 10 s de conexión + 60 s de
+    // lectura), o el lote podría reclamarse dos veces mientras sigue en vuelo
+    @Value("${loans.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    private static final String IDEMPOTENCY_PREFIX = "loans-outbox-";
+
+    public KardexOutboxService(KardexOutboxRepository outboxRepository,
+                               KardexClient kardexClient,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.kardexClient = kardexClient;
+        this.transactionTemplate = transactionTemplate;
+        this.sentCounter = meterRegistry.counter("loans.outbox.sent");
+        this.retryCounter = meterRegistry.counter("loans.outbox.retries");
+        this.deadCounter = meterRegistry.counter("loans.outbox.dead");
+        meterRegistry.gauge("loans.outbox.backlog", backlog);
+        meterRegistry.gauge("loans.outbox.lag.seconds", lagSeconds);
+    }
+
+    // Se une a la transacción del préstamo: si el préstamo hace rollback, el movimiento también
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(KardexRequest request) {
+        outboxRepository.save(toEntry(request));
+    }
+
+    // Variante masiva para el préstamo múltiple, misma garantía transaccional
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<KardexRequest> requests) {
+        outboxRepository.saveAll(requests.stream().map(this::toEntry).collect(Collectors.toList()));
+    }
+
+    // Relay: reclama pendientes y los envía en lotes al endpoint masivo de Kardex. Cada entrada
+    // lleva su id como clave de idempotencia, así que un reenvío tras una respuesta perdida no
+    // duplica movimientos en Kardex.
+    @Scheduled(fixedDelayString = "${loans.outbox.relay-interval-ms:2000}")
+    public void relay() {
+        List<KardexOutboxEntity> batch = claimBatch();
+
+        if (!batch.isEmpty()) {
+            send(batch, new RelayRun());
+            outboxRepository.saveAll(batch);
+        }
+
+        refreshMetrics();
+    }
+
+    // Reclamo en su propia transacción corta: las filas se toman con SKIP LOCKED y se les corre
+    // nextAttemptAt hasta el fin del lease, así ninguna otra réplica las ve mientras se envían.
+    // Si esta réplica cae a mitad de envío, el lease vence y otra las reenvía (sin duplicar, por la clave).
+    private List<KardexOutboxEntity> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<KardexOutboxEntity> claimed = outboxRepository.lockReadyBatch(now, batchSize);
+            LocalDateTime leaseUntil = now.plus(Duration.ofMillis(leaseMs));
+            claimed.forEach(entry -> entry.setNextAttemptAt(leaseUntil));
+            return outboxRepository.saveAll(claimed);
+        });
+    }
+
+    // El endpoint masivo es todo o nada: si Kardex rechaza el lote se parte en mitades hasta
+    // aislar la entrada inválida, para que solo ella acumule intentos. Si Kardex no está
+    // disponible no se parte nada: todo lo que queda se reintenta más tarde.
+    private void send(List<KardexOutboxEntity> entries, RelayRun run) {
+        List<KardexOutboxEntity> sendable = new ArrayList<>();
+        for (KardexOutboxEntity entry : entries) {
+            if (run.blockedUnits.contains(entry.getToolUnitId())) {
+                // Un movimiento anterior de la unidad falló en este ciclo: se libera sin intento
+                // y espera detrás de él, para no registrar la unidad fuera de orden
+                entry.setNextAttemptAt(LocalDateTime.now());
+            } else {
+                sendable.add(entry);
+            }
+        }
+        if (sendable.isEmpty()) {
+            return;
+        }
+        if (run.unavailableError != null) {
+            fail(sendable, run.unavailableError, run);
+            return;
+        }
+
+        try {
+            kardexClient.registerMovements(sendable.stream()
+                    .map(this::toRequest)
+                    .collect(Collectors.toList()));
+            markSent(sendable);
+        } catch (Exception e) {
+            if (isUnavailable(e)) {
+                log.warn("Kardex no disponible, {} movimientos quedan para reintento: {}", sendable.size(), e.getMessage());
+                run.unavailableError = e.getMessage();
+                fail(sendable, e.getMessage(), run);
+            } else if (sendable.size() == 1) {
+                log.warn("Kardex rechazó el movimiento {}: {}", sendable.get(0).getId(), e.getMessage());
+                fail(sendable, e.getMessage(), run);
+            } else {
+                log.warn("Kardex rechazó un lote de {} movimientos, se divide para aislar el inválido: {}",
+                        sendable.size(), e.getMessage());
+                int middle = sendable.size() / 2;
+                send(sendable.subList(0, middle), run);
+                send(sendable.subList(middle, sendable.size()), run);
+            }
+        }
+    }
+
+    private void fail(List<KardexOutboxEntity> entries, String error, RelayRun run) {
+        markForRetry(entries, error);
+        entries.forEach(entry -> run.blockedUnits.add(entry.getToolUnitId()));
+    }
+
+    // Sin conexión, timeout o Kardex sin instancias: el lote no tiene la culpa
+    private static boolean isUnavailable(Exception e) {
+        return e instanceof RetryableException || (e instanceof FeignException feign && feign.status() >= 502);
+    }
+
+    // Estado de un ciclo del relay: unidades con un fallo en este ciclo y si Kardex dejó de responder
+    private static class RelayRun {
+        private final Set<Long> blockedUnits = new HashSet<>();
+        private String unavailableError;
+    }
+
+    private void markSent(List<KardexOutboxEntity> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        for (KardexOutboxEntity entry : batch) {
+            entry.setStatus(OutboxStatus.SENT);
+            entry.setSentAt(now);
+            entry.setLastError(null);
+        }
+        sentCounter.increment(batch.size());
+    }
+
+    // Backoff exponencial por entrada; al agotar reintentos queda FAILED para revisión manual
+    private void markForRetry(List<KardexOutboxEntity> batch, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        for (KardexOutboxEntity entry : batch) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setLastError(error);
+            if (entry.getAttempts() >= maxAttempts) {
+                entry.setStatus(OutboxStatus.FAILED);
+                deadCounter.increment();
+                log.error("Movimiento Kardex {} descartado tras {} intentos", entry.getId(), entry.getAttempts());
+            } else {
+                long delayMs = baseBackoffMs * (1L << Math.min(entry.getAttempts() - 1, 10));
+                entry.setNextAttemptAt(now.plus(Duration.ofMillis(delayMs)));
+                retryCounter.increment();
+            }
+        }
+    }
+
+    private void refreshMetrics() {
+        backlog.set(outboxRepository.countByStatus(OutboxStatus.PENDING));
+        LocalDateTime oldest = outboxRepository.findOldestPendingCreatedAt();
+        lagSeconds.set(oldest != null ? Duration.between(oldest, LocalDateTime.now()).getSeconds() : 0);
+    }
+
+    private KardexRequest toRequest(KardexOutboxEntity entry) {
+        return new KardexRequest(
+                entry.getMovementType(),
+                entry.getToolUnitId(),
+                entry.getToolGroupId(),
+                entry.getCustomerId(),
+                entry.getDetails(),
+                entry.getUserId(),
+                IDEMPOTENCY_PREFIX + entry.getId()
+        );
+    }
+
+    private KardexOutboxEntity toEntry(KardexRequest request) {
+        KardexOutboxEntity entry = new KardexOutboxEntity();
+        entry.setMovementType(request.getMovementType());
+        entry.setToolUnitId(request.getToolUnitId());
+        entry.setToolGroupId(request.getToolGroupId());
+        entry.setCustomerId(request.getCustomerId());
+        entry.setDetails(request.getDetails());
+        entry.setUserId(request.getUserId());
+        return entry;
+    }
+}
@@ -1,23 +1,49 @@
 package com.example.loans_service.service;
 
 import com.example.loans_service.client.*;
+import com.example.loans_service.dto.BatchLoanRequestDTO;
+import com.example.loans_service.dto.EligibilitySummaryDTO;
 import com.example.loans_service.dto.LoanActiveDTO;
+import com.example.loans_service.dto.LoanPageDTO;
 import com.example.loans_service.dto.LoanRequestDTO;
 import com.example.loans_service.dto.LoanResponseDTO;
 import com.example.loans_service.entity.LoanEntity;
 import com.example.loans_service.entity.LoanStatus;
 import com.example.loans_service.model.*;
 import com.example.loans_service.repository.LoanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,7 +53,19 @@ public class LoanService {
     private final LoanRepository loanRepository;
     private final CustomerClient customerClient;
     private final ToolClient toolClient;
-    private final KardexClient kardexClient;
+    private final KardexOutboxService kardexOutboxService;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService loanCheckExecutor;
+    private final EntityManager entityManager;
+
+    private static final String STEP_TIMER = "loans.register.step";
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Value("${loans.checks.timeout.customer-ms:3000}")
+    private long customerCheckTimeoutMs;
+
+    @Value("${loans.checks.timeout.limits-ms:2000}")
+    private long limitsCheckTimeoutMs;
 
     @Transactional
     public LoanResponseDTO registerLoan(LoanRequestDTO request, String userName) {
@@ -42,55 +80,89 @@ public class LoanService {
             throw new RuntimeException("La fecha de devolución no puede ser anterior a la actual");
         }
 
-        // 3. Validar cliente
-        CustomerModel customer = customerClient.validateForLoan(request.getCustomerId());
-        validateCustomerForLoan(customer);
+        // 3-4. Validar cliente y límites: son independientes, se ejecutan en paralelo
+        PreChecks checks = new PreChecks();
+        Future<CustomerModel> customerCheck = checks.submit("customer", customerCheckTimeoutMs, () -> {
+            CustomerModel validated = customerClient.validateForLoan(request.getCustomerId());
+            validateCustomerForLoan(validated);
+            return validated;
+        });
+        checks.submit("limits", limitsCheckTimeoutMs, () -> {
+            validateLoanLimits(request.getCustomerId(), request.getToolGroupId());
+            return null;
+        });
 
-        // 4. Validar límites de préstamo
-        validateLoanLimits(request.getCustomerId(), request.getToolGroupId());
+        meterRegistry.timer(STEP_TIMER, "step", "checks").record(checks::await);
 
-        // 5. Obtener herramienta disponible
-        ToolUnitModel toolUnit = toolClient.getAvailableUnit(request.getToolGroupId());
+        CustomerModel customer = resultOf(customerCheck);
 
-        // 6. Calcular costo
-        long days = Math.max(1, ChronoUnit.DAYS.between(LocalDateTime.now(), dueDate));
-        Double totalCost = toolUnit.getDailyRentalRate() * days;
+        // 5. Reservar unidad: Tool Service la elige y la marca LOANED en una sola llamada.
+        // Va después de las validaciones para no reservar si alguna falla.
+        ToolUnitModel toolUnit = meterRegistry.timer(STEP_TIMER, "step", "reserve")
+                .record(() -> toolClient.reserveUnit(request.getToolGroupId(), userName));
+        releaseUnitsOnRollback(List.of(toolUnit.getId()), userName);
 
-        // 7. Crear préstamo
-        LoanEntity loan = new LoanEntity();
-        loan.setCustomerId(request.getCustomerId());
-        loan.setToolUnitId(toolUnit.getId());
-        loan.setToolGroupId(request.getToolGroupId());
-        loan.setDueDate(dueDate);
-        loan.setTotalCost(totalCost);
-        loan.setStatus(LoanStatus.ACTIVE);
+        // 6-7. Calcular costo y crear préstamo
+        LoanEntity savedLoan = loanRepository.save(newLoan(request.getCustomerId(), dueDate, customer, toolUnit));
 
-        LoanEntity savedLoan = loanRepository.save(loan);
+        // 8. Registrar en Kardex (outbox en la misma transacción, lo envía el relay)
+        kardexOutboxService.enqueue(loanMovement(savedLoan, customer, userName));
 
-        // 8. Actualizar estado de herramienta
-        try {
-            toolClient.updateStatus(toolUnit.getId(), "LOANED", userName);
-        } catch (Exception e) {
-            log.error("Error actualizando estado de herramienta", e);
-            throw new RuntimeException("Error al actualizar estado de herramienta");
+        return mapToResponseDTO(savedLoan, customer.getName(), toolUnit.getToolGroupName());
+    }
+
+    // Préstamo múltiple: valida al cliente una sola vez, aplica los límites a toda la canasta,
+    // reserva todas las unidades en una llamada y registra el Kardex en bloque. Todo o nada.
+    @Transactional
+    public List<LoanResponseDTO> registerLoans(BatchLoanRequestDTO request, String userName) {
+        List<Long> toolGroupIds = request.getToolGroupIds();
+        log.info("Registrando préstamo múltiple - Cliente: {}, Herramientas: {}",
+                request.getCustomerId(), toolGroupIds);
+
+        if (toolGroupIds == null || toolGroupIds.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos una herramienta");
+        }
+        if (new HashSet<>(toolGroupIds).size() != toolGroupIds.size()) {
+            throw new RuntimeException("No se puede pedir más de una unidad de la misma herramienta");
         }
 
-        // 9. Registrar en Kardex
-        try {
-            KardexRequest requestKardex = new KardexRequest();
-            requestKardex.setMovementType(MovementType.LOAN);
-            requestKardex.setToolUnitId(toolUnit.getId());
-            requestKardex.setToolGroupId(request.getToolGroupId());
-            requestKardex.setCustomerId(request.getCustomerId());
-            requestKardex.setDetails("Préstamo a cliente: " + customer.getName());
-            requestKardex.setUserId(userName != null ? userName : "Sistema");
-
-            kardexClient.registerMovement(requestKardex);
-        } catch (Exception e) {
-            log.warn("Error registrando en Kardex, pero préstamo creado", e);
+        LocalDateTime dueDate = LocalDateTime.parse(request.getDueDate());
+        if (dueDate.isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("La fecha de devolución no puede ser anterior a la actual");
         }
 
-        return mapToResponseDTO(savedLoan, customer.getName(), toolUnit.getToolGroupName());
+        PreChecks checks = new PreChecks();
+        Future<CustomerModel> customerCheck = checks.submit("customer", customerCheckTimeoutMs, () -> {
+            CustomerModel validated = customerClient.validateForLoan(request.getCustomerId());
+            validateCustomerForLoan(validated);
+            return validated;
+        });
+        checks.submit("limits", limitsCheckTimeoutMs, () -> {
+            validateBasketLimits(request.getCustomerId(), toolGroupIds);
+            return null;
+        });
+
+        meterRegistry.timer(STEP_TIMER, "step", "checks").record(checks::await);
+
+        CustomerModel customer = resultOf(customerCheck);
+
+        // Una sola llamada a Tool Service: si falta stock en algún grupo no se reserva ninguna
+        List<ToolUnitModel> toolUnits = meterRegistry.timer(STEP_TIMER, "step", "reserve")
+                .record(() -> toolClient.reserveUnits(toolGroupIds, userName));
+        releaseUnitsOnRollback(toolUnits.stream().map(ToolUnitModel::getId).collect(Collectors.toList()), userName);
+
+        List<LoanEntity> loans = toolUnits.stream()
+                .map(toolUnit -> newLoan(request.getCustomerId(), dueDate, customer, toolUnit))
+                .collect(Collectors.toList());
+        List<LoanEntity> savedLoans = loanRepository.saveAll(loans);
+
+        kardexOutboxService.enqueueAll(savedLoans.stream()
+                .map(loan -> loanMovement(loan, customer, userName))
+                .collect(Collectors.toList()));
+
+        return savedLoans.stream()
+                .map(loan -> mapToResponseDTO(loan, customer.getName(), loan.getToolName()))
+                .collect(Collectors.toList());
     }
 
     @Transactional
@@ -111,8 +183,11 @@ public class LoanService {
         // 2. Calcular multa por atraso
         if (loan.getReturnDate().isAfter(loan.getDueDate())) {
             long lateDays = ChronoUnit.DAYS.between(loan.getDueDate(), loan.getReturnDate());
-            ToolUnitModel toolUnit = toolClient.getToolUnit(loan.getToolUnitId());
-            loan.setFineAmount(lateDays * toolUnit.getDailyFineRate());
+            // Tarifa del snapshot; solo préstamos anteriores al snapshot consultan Tool Service
+            Double dailyFineRate = loan.getDailyFineRate() != null
+                    ? loan.getDailyFineRate()
+                    : toolClient.getToolUnit(loan.getToolUnitId()).getDailyFineRate();
+            loan.setFineAmount(lateDays * dailyFineRate);
         }
 
         // 3. Manejar daños
@@ -166,25 +241,8 @@ public class LoanService {
             return loans.stream()
                     .map(loan -> {
                         try {
-                            // Intentar obtener información del cliente
-                            CustomerModel customer = null;
-                            try {
-                                customer = customerClient.getCustomer(loan.getCustomerId());
-                            } catch (Exception e) {
-                                //log.warn(" No se pudo obtener cliente {}: {}", loan.getCustomerId(), e.getMessage());
-                            }
-
-                            // Intentar obtener información de la herramienta
-                            ToolUnitModel toolUnit = null;
-                            try {
-                                toolUnit = toolClient.getToolUnit(loan.getToolUnitId());
-                            } catch (Exception e) {
-                                //log.warn(" No se pudo obtener herramienta {}: {}", loan.getToolUnitId(), e.getMessage());
-                            }
-
-                            // Construir DTO con información disponible
-                            String customerName = customer != null ? customer.getName() : "Cliente #" + loan.getCustomerId();
-                            String toolName = toolUnit != null ? toolUnit.getToolGroupName() : "Herramienta #" + loan.getToolUnitId();
+                            String customerName = snapshotOr(loan.getCustomerName(), "Cliente #" + loan.getCustomerId());
+                            String toolName = snapshotOr(loan.getToolName(), "Herramienta #" + loan.getToolUnitId());
 
                             return new LoanActiveDTO(
                                     loan.getId(),
@@ -193,9 +251,10 @@ public class LoanService {
                                     loan.getLoanDate(),
                                     loan.getDueDate(),
                                     loan.getReturnDate(),
-                                    loan.getFineAmount() != null ? loan.getFineAmount() : 0.0,
+                                    currentFine(loan),
                                     loan.getDamageCharge() != null ? loan.getDamageCharge() : 0.0,
-                                    loan.getStatus().toString()
+                                    loan.getStatus().toString(),
+                                    daysOverdue(loan)
                             );
                         } catch (Exception e) {
                             log.error(" Error mapeando préstamo activo ID {}: {}", loan.getId(), e.getMessage());
@@ -260,22 +319,8 @@ public class LoanService {
             return loans.stream()
                     .map(loan -> {
                         try {
-                            CustomerModel customer = null;
-                            try {
-                                customer = customerClient.getCustomer(loan.getCustomerId());
-                            } catch (Exception e) {
-                                log.warn(" No se pudo obtener cliente {}: {}", loan.getCustomerId(), e.getMessage());
-                            }
-
-                            ToolUnitModel toolUnit = null;
-                            try {
-                                toolUnit = toolClient.getToolUnit(loan.getToolUnitId());
-                            } catch (Exception e) {
-                                log.warn(" No se pudo obtener herramienta {}: {}", loan.getToolUnitId(), e.getMessage());
-                            }
-
-                            String customerName = customer != null ? customer.getName() : "Cliente #" + loan.getCustomerId();
-                            String toolName = toolUnit != null ? toolUnit.getToolGroupName() : "Herramienta #" + loan.getToolUnitId();
+                            String customerName = snapshotOr(loan.getCustomerName(), "Cliente #" + loan.getCustomerId());
+                            String toolName = snapshotOr(loan.getToolName(), "Herramienta #" + loan.getToolUnitId());
 
                             return new LoanActiveDTO(
                                     loan.getId(),
@@ -305,41 +350,66 @@ public class LoanService {
     public List<LoanActiveDTO> getOverdueLoans() {
         List<LoanEntity> loans = loanRepository.findOverdueLoans(LocalDateTime.now());
 
-        return loans.stream().map(loan -> {
-            CustomerModel customer = getCustomerInfo(loan.getCustomerId());
-            ToolUnitModel toolUnit = getToolUnitInfo(loan.getToolUnitId());
-
-            return new LoanActiveDTO(
-                    loan.getId(),
-                    customer != null ? customer.getName() : "Desconocido",
-                    toolUnit != null ? toolUnit.getToolGroupName() : "Desconocido",
-                    loan.getLoanDate(),
-                    loan.getDueDate(),
-                    loan.getReturnDate(),
-                    loan.getFineAmount(),
-                    loan.getDamageCharge(),
-                    "OVERDUE"
-            );
-        }).collect(Collectors.toList());
+        return loans.stream().map(loan -> new LoanActiveDTO(
+                loan.getId(),
+                snapshotOr(loan.getCustomerName(), "Desconocido"),
+                snapshotOr(loan.getToolName(), "Desconocido"),
+                loan.getLoanDate(),
+                loan.getDueDate(),
+                loan.getReturnDate(),
+                currentFine(loan),
+                loan.getDamageCharge(),
+                "OVERDUE",
+                daysOverdue(loan)
+        )).collect(Collectors.toList());
     }
 
     public List<LoanActiveDTO> getAllClosedLoans() {
         List<LoanEntity> closedLoans = loanRepository.findByReturnDateIsNotNull();
-        return closedLoans.stream().map(loan -> {
-            CustomerModel customer = getCustomerInfo(loan.getCustomerId());
-            ToolUnitModel tool = getToolUnitInfo(loan.getToolUnitId());
-            return new LoanActiveDTO(
-                    loan.getId(),
-                    customer != null ? customer.getName() : "Desconocido",
-                    tool != null ? tool.getToolGroupName() : "Desconocido",
-                    loan.getLoanDate(),
-                    loan.getDueDate(),
-                    loan.getReturnDate(),
-                    loan.getFineAmount() != null ? loan.getFineAmount() : 0.0,
-                    loan.getDamageCharge() != null ? loan.getDamageCharge() : 0.0,
-                    "RETURNED"
-            );
-        }).collect(Collectors.toList());
+
+        return closedLoans.stream().map(loan -> new LoanActiveDTO(
+                loan.getId(),
+                snapshotOr(loan.getCustomerName(), "Desconocido"),
+                snapshotOr(loan.getToolName(), "Desconocido"),
+                loan.getLoanDate(),
+                loan.getDueDate(),
+                loan.getReturnDate(),
+                loan.getFineAmount() != null ? loan.getFineAmount() : 0.0,
+                loan.getDamageCharge() != null ? loan.getDamageCharge() : 0.0,
+                "RETURNED"
+        )).collect(Collectors.toList());
+    }
+
+    // ===== PAGINACIÓN POR CURSOR (keyset sobre id) =====
+
+    public LoanPageDTO getActiveLoansPage(Long after, int size) {
+        int limit = pageSize(size);
+        List<LoanEntity> loans = loanRepository.findActiveAfter(cursorOf(after), PageRequest.of(0, limit));
+        return toPage(loans, limit, loan -> loan.getStatus().toString());
+    }
+
+    public LoanPageDTO getOverdueLoansPage(Long after, int size) {
+        int limit = pageSize(size);
+        List<LoanEntity> loans = loanRepository.findOverdueAfter(LocalDateTime.now(), cursorOf(after), PageRequest.of(0, limit));
+        return toPage(loans, limit, loan -> "OVERDUE");
+    }
+
+    public LoanPageDTO getClosedLoansPage(Long after, int size) {
+        int limit = pageSize(size);
+        List<LoanEntity> loans = loanRepository.findClosedAfter(cursorOf(after), PageRequest.of(0, limit));
+        return toPage(loans, limit, loan -> "RETURNED");
+    }
+
+    // Recorre todo el historial cerrado en memoria constante: cada entidad se desacopla
+    // del contexto de persistencia apenas se emite
+    @Transactional(readOnly = true)
+    public void streamClosedLoans(Consumer<LoanActiveDTO> sink) {
+        try (Stream<LoanEntity> loans = loanRepository.streamClosed()) {
+            loans.forEach(loan -> {
+                entityManager.detach(loan);
+                sink.accept(mapToListDTO(loan, "RETURNED"));
+            });
+        }
     }
 
     @Transactional
@@ -400,6 +470,27 @@ public class LoanService {
         }
     }
 
+    public long getActiveLoansCount(Long customerId) {
+        return loanRepository.countByCustomerIdAndReturnDateIsNull(customerId);
+    }
+
+    // Conteo por cliente para paneles; los clientes sin préstamos activos aparecen con 0
+    public Map<Long, Long> getActiveLoansCounts(List<Long> customerIds) {
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        if (customerIds == null || customerIds.isEmpty()) {
+            return counts;
+        }
+        customerIds.forEach(id -> counts.put(id, 0L));
+        for (Object[] row : loanRepository.countActiveByCustomerIds(new HashSet<>(customerIds))) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    public EligibilitySummaryDTO getEligibilitySummary(Long customerId) {
+        return loanRepository.getEligibilitySummary(customerId, LocalDateTime.now());
+    }
+
     public long getOverdueLoansCount(Long customerId) {
         return loanRepository.countByCustomerIdAndReturnDateIsNullAndDueDateBefore(customerId, LocalDateTime.now());
     }
@@ -427,29 +518,143 @@ public class LoanService {
         }
     }
 
+    // Mismas reglas que validateLoanLimits, aplicadas a toda la canasta
+    private void validateBasketLimits(Long customerId, List<Long> toolGroupIds) {
+        long activeLoans = loanRepository.countByCustomerIdAndReturnDateIsNull(customerId);
+        if (activeLoans + toolGroupIds.size() > 5) {
+            throw new RuntimeException("El cliente tiene " + activeLoans + " préstamos activos y pide "
+                    + toolGroupIds.size() + " más (máximo permitido: 5)");
+        }
+
+        boolean alreadyHasSameTool = loanRepository.existsByCustomerIdAndToolGroupIdInAndReturnDateIsNull(
+                customerId, toolGroupIds);
+        if (alreadyHasSameTool) {
+            throw new RuntimeException("El cliente ya tiene en préstamo una de las herramientas solicitadas");
+        }
+    }
+
+    // Si el préstamo no llega a confirmarse, las unidades reservadas vuelven a quedar disponibles
+    private void releaseUnitsOnRollback(List<Long> toolUnitIds, String userName) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                for (Long toolUnitId : toolUnitIds) {
+                    try {
+                        toolClient.updateStatus(toolUnitId, "AVAILABLE", userName);
+                        log.info("Unidad {} liberada tras rollback del préstamo", toolUnitId);
+                    } catch (Exception e) {
+                        log.error("No se pudo liberar la unidad {} tras rollback: {}", toolUnitId, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private LoanEntity newLoan(Long customerId, LocalDateTime dueDate, CustomerModel customer, ToolUnitModel toolUnit) {
+        long days = Math.max(1, ChronoUnit.DAYS.between(LocalDateTime.now(), dueDate));
+
+        LoanEntity loan = new LoanEntity();
+        loan.setCustomerId(customerId);
+        loan.setToolUnitId(toolUnit.getId());
+        loan.setToolGroupId(toolUnit.getToolGroupId());
+        loan.setDueDate(dueDate);
+        loan.setTotalCost(toolUnit.getDailyRentalRate() * days);
+        loan.setStatus(LoanStatus.ACTIVE);
+        loan.setCustomerName(customer.getName());
+        loan.setToolName(toolUnit.getToolGroupName());
+        loan.setDailyFineRate(toolUnit.getDailyFineRate());
+        return loan;
+    }
+
+    private KardexRequest loanMovement(LoanEntity loan, CustomerModel customer, String userName) {
+        KardexRequest request = new KardexRequest();
+        request.setMovementType(MovementType.LOAN);
+        request.setToolUnitId(loan.getToolUnitId());
+        request.setToolGroupId(loan.getToolGroupId());
+        request.setCustomerId(loan.getCustomerId());
+        request.setDetails("Préstamo a cliente: " + customer.getName());
+        request.setUserId(userName != null ? userName : "Sistema");
+        return request;
+    }
+
+    // Validaciones previas en paralelo sobre el pool de chequeos, cada una con timeout propio y timer
+    // por paso. Se usan Future del ExecutorService y no CompletableFuture: cancel(true) sí interrumpe
+    // el hilo, así la primera que falla o vence cancela a las demás en vez de dejarlas ocupando el pool.
+    // Ojo: corren en hilos del pool, fuera de la transacción de quien llama (validateLoanLimits lee
+    // con su propia conexión y no ve lo escrito antes en la transacción del préstamo).
+    private final class PreChecks {
+        private final CompletionService<Object> completion = new ExecutorCompletionService<>(loanCheckExecutor);
+        private final Map<Future<Object>, String> steps = new LinkedHashMap<>();
+        private final Map<Future<Object>, Long> deadlines = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        <T> Future<T> submit(String step, long timeoutMs, Supplier<T> check) {
+            Timer timer = meterRegistry.timer(STEP_TIMER, "step", step);
+            Future<Object> future = completion.submit(() -> timer.record(check));
+            steps.put(future, step);
+            deadlines.put(future, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+            return (Future<T>) future;
+        }
+
+        // Espera todas; la primera que falle o venza cancela el resto y su error se propaga tal cual
+        void await() {
+            Set<Future<Object>> pending = new HashSet<>(steps.keySet());
+            try {
+                while (!pending.isEmpty()) {
+                    Future<Object> next = pending.stream()
+                            .min(Comparator.comparing(deadlines::get))
+                            .orElseThrow();
+                    Future<Object> done = completion.poll(deadlines.get(next) - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        throw new RuntimeException("Tiempo de espera agotado en validación: " + steps.get(next));
+                    }
+                    pending.remove(done);
+                    done.get();
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Validación interrumpida");
+            } finally {
+                for (Future<Object> future : pending) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    // Resultado de una validación que await() ya dio por completada sin error
+    private static <T> T resultOf(Future<T> check) {
+        try {
+            return check.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
     private void registerKardexMovement(String movementType,
                                         LoanEntity loan,
                                         String details,
                                         String userName,
                                         String customerName) {
-        try {
-            KardexRequest request = new KardexRequest();
-            request.setMovementType(MovementType.valueOf(movementType)); // LOAN, RETURN, REPAIR, RETIRE
-            request.setToolUnitId(loan.getToolUnitId());
-            request.setToolGroupId(loan.getToolGroupId());
-            request.setCustomerId(loan.getCustomerId());
-            request.setDetails(details);
-            request.setUserId(userName != null ? userName : "Sistema");
-
-            kardexClient.registerMovement(request);
-        } catch (Exception e) {
-            log.warn("Error registrando movimiento {} en Kardex: {}", movementType, e.getMessage());
-        }
+        KardexRequest request = new KardexRequest();
+        request.setMovementType(MovementType.valueOf(movementType)); // LOAN, RETURN, REPAIR, RETIRE
+        request.setToolUnitId(loan.getToolUnitId());
+        request.setToolGroupId(loan.getToolGroupId());
+        request.setCustomerId(loan.getCustomerId());
+        request.setDetails(details);
+        request.setUserId(userName != null ? userName : "Sistema");
+
+        kardexOutboxService.enqueue(request);
     }
 
-
-
     private LoanResponseDTO mapToResponseDTO(LoanEntity loan, String customerName, String toolName) {
         return new LoanResponseDTO(
                 loan.getId(),
@@ -467,21 +672,52 @@ public class LoanService {
         );
     }
 
-    private CustomerModel getCustomerInfo(Long customerId) {
-        try {
-            return customerClient.getCustomer(customerId);
-        } catch (Exception e) {
-            log.warn("Error obteniendo cliente {}", customerId, e);
-            return null;
-        }
+    private LoanPageDTO toPage(List<LoanEntity> loans, int limit, Function<LoanEntity, String> status) {
+        List<LoanActiveDTO> items = loans.stream()
+                .map(loan -> mapToListDTO(loan, status.apply(loan)))
+                .collect(Collectors.toList());
+        Long nextCursor = loans.size() < limit ? null : loans.get(loans.size() - 1).getId();
+        return new LoanPageDTO(items, nextCursor);
     }
 
-    private ToolUnitModel getToolUnitInfo(Long toolUnitId) {
-        try {
-            return toolClient.getToolUnit(toolUnitId);
-        } catch (Exception e) {
-            log.warn("Error obteniendo herramienta {}", toolUnitId, e);
-            return null;
+    private LoanActiveDTO mapToListDTO(LoanEntity loan, String status) {
+        return new LoanActiveDTO(
+                loan.getId(),
+                snapshotOr(loan.getCustomerName(), "Desconocido"),
+                snapshotOr(loan.getToolName(), "Desconocido"),
+                loan.getLoanDate(),
+                loan.getDueDate(),
+                loan.getReturnDate(),
+                currentFine(loan),
+                loan.getDamageCharge() != null ? loan.getDamageCharge() : 0.0,
+                status,
+                daysOverdue(loan)
+        );
+    }
+
+    // Préstamo activo: multa acumulada por OverdueFineAccrualJob; devuelto: multa cobrada
+    private static Double currentFine(LoanEntity loan) {
+        if (loan.getReturnDate() == null && loan.getAccruedFine() != null) {
+            return loan.getAccruedFine();
         }
+        return loan.getFineAmount() != null ? loan.getFineAmount() : 0.0;
+    }
+
+    private static Long daysOverdue(LoanEntity loan) {
+        return loan.getDaysOverdue() != null ? loan.getDaysOverdue() : 0L;
+    }
+
+    private static long cursorOf(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // Los listados leen los nombres guardados al crear el préstamo; las filas antiguas
+    // sin snapshot las completa LoanSnapshotBackfillJob
+    private static String snapshotOr(String snapshot, String fallback) {
+        return snapshot != null ? snapshot : fallback;
     }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.CustomerClient;
+import com.example.loans_service.client.ToolClient;
+import com.example.loans_service.entity.LoanEntity;
+import com.example.loans_service.model.CustomerModel;
+import com.example.loans_service.model.ToolUnitModel;
+import com.example.loans_service.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Completa customerName/toolName en préstamos creados antes del snapshot.
+// Recorre la tabla por rangos de id (clave primaria), con una llamada en lote por servicio y bloque.
+// Cuando una pasada completa termina sin errores remotos, lo que sigue en null no tiene a quién
+// resolverse (cliente o unidad inexistente) y el job deja de escanear hasta el próximo arranque.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoanSnapshotBackfillJob {
+
+    private final LoanRepository loanRepository;
+    private final CustomerClient customerClient;
+    private final ToolClient toolClient;
+
+    @Value("${loans.snapshot-backfill.chunk-size:200}")
+    private int chunkSize;
+
+    private volatile boolean completed;
+    private boolean remoteFailure;
+
+    @Scheduled(initialDelayString = "${loans.snapshot-backfill.initial-delay-ms:30000}",
+            fixedDelayString = "${loans.snapshot-backfill.interval-ms:3600000}")
+    public void run() {
+        if (completed) {
+            return;
+        }
+
+        Long maxId = loanRepository.findMaxId();
+        remoteFailure = false;
+        int updated = 0;
+        int unresolved = 0;
+        for (long fromId = 0; maxId != null && fromId < maxId; fromId += chunkSize) {
+            List<LoanEntity> chunk = loanRepository.findMissingSnapshotBetween(fromId, fromId + chunkSize);
+            if (!chunk.isEmpty()) {
+                updated += backfillChunk(chunk);
+                unresolved += (int) chunk.stream()
+                        .filter(loan -> loan.getCustomerName() == null || loan.getToolName() == null)
+                        .count();
+            }
+        }
+
+        if (updated > 0) {
+            log.info("Backfill de snapshot: {} préstamos actualizados", updated);
+        }
+        if (!remoteFailure) {
+            completed = true;
+            log.info("Backfill de snapshot terminado; {} préstamos quedan sin nombre resolvible", unresolved);
+        }
+    }
+
+    private int backfillChunk(List<LoanEntity> chunk) {
+        Map<Long, String> customerNames = getCustomerNames(chunk);
+        Map<Long, String> toolNames = getToolNames(chunk);
+
+        int updated = 0;
+        for (LoanEntity loan : chunk) {
+            String customerName = loan.getCustomerName() == null ? customerNames.get(loan.getCustomerId()) : null;
+            String toolName = loan.getToolName() == null ? toolNames.get(loan.getToolUnitId()) : null;
+            if (customerName == null && toolName == null) {
+                continue;
+            }
+            // La copia leída solo sirve para contar lo que queda sin resolver; la fila se actualiza aparte
+            if (customerName != null) {
+                loan.setCustomerName(customerName);
+            }
+            if (toolName != null) {
+                loan.setToolName(toolName);
+            }
+            updated += loanRepository.updateSnapshotNames(loan.getId(), customerName, toolName);
+        }
+        return updated;
+    }
+
+    private Map<Long, String> getCustomerNames(List<LoanEntity> loans) {
+        List<Long> ids = loans.stream()
+                .filter(loan -> loan.getCustomerName() == null)
+                .map(LoanEntity::getCustomerId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+
+        try {
+            for (CustomerModel customer : customerClient.getCustomersByIds(ids)) {
+                names.put(customer.getId(), customer.getName());
+            }
+        } catch (Exception e) {
+            remoteFailure = true;
+            log.warn("Error obteniendo clientes en lote ({} IDs): {}", ids.size(), e.getMessage());
+        }
+        return names;
+    }
+
+    private Map<Long, String> getToolNames(List<LoanEntity> loans) {
+        List<Long> ids = loans.stream()
+                .filter(loan -> loan.getToolName() == null)
+                .map(LoanEntity::getToolUnitId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+
+        try {
+            for (ToolUnitModel toolUnit : toolClient.getToolUnitsByIds(ids)) {
+                names.put(toolUnit.getId(), toolUnit.getToolGroupName());
+            }
+        } catch (Exception e) {
+            remoteFailure = true;
+            log.warn("Error obteniendo herramientas en lote ({} IDs): {}", ids.size(), e.getMessage());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.ToolClient;
+import com.example.loans_service.entity.LoanEntity;
+import com.example.loans_service.model.ToolUnitModel;
+import com.example.loans_service.repository.LoanRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Acumula días de atraso y multa de los préstamos vencidos, una vez por día.
+// El cálculo se rehace desde dueDate, así que ejecutarlo dos veces da el mismo resultado.
+@Component
+@Slf4j
+public class OverdueFineAccrualJob {
+
+    private final LoanRepository loanRepository;
+    private final ToolClient toolClient;
+    private final Timer runTimer;
+    private final DistributionSummary rowsSummary;
+
+    @Value("${loans.fines.chunk-size:500}")
+    private int chunkSize;
+
+    public OverdueFineAccrualJob(LoanRepository loanRepository,
+                                 ToolClient toolClient,
+                                 MeterRegistry meterRegistry) {
+        this.loanRepository = loanRepository;
+        this.toolClient = toolClient;
+        this.runTimer = meterRegistry.timer("loans.fines.accrual.duration");
+        this.rowsSummary = meterRegistry.summary("loans.fines.accrual.rows");
+    }
+
+    @Scheduled(cron = "${loans.fines.accrual-cron:0 15 0 * * *}")
+    public void run() {
+        long start = System.nanoTime();
+        int rows = accrue(LocalDateTime.now());
+        long elapsedNanos = System.nanoTime() - start;
+
+        runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        rowsSummary.record(rows);
+        log.info("Multas por atraso acumuladas: {} préstamos en {} ms", rows, elapsedNanos / 1_000_000);
+    }
+
+    int accrue(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        long cursor = 0L;
+        int rows = 0;
+
+        List<LoanEntity> chunk;
+        do {
+            chunk = loanRepository.findOverdueToAccrueAfter(now, today, cursor, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            fillMissingFineRates(chunk);
+
+            // Sin tarifa conocida no se marca el día: se reintenta en la próxima ejecución.
+            // El chunk es una copia leída antes de la llamada remota: se escriben solo las columnas
+            // del acumulado, nunca la entidad completa (pisaría una devolución hecha entretanto)
+            for (LoanEntity loan : chunk) {
+                if (loan.getDailyFineRate() == null) {
+                    continue;
+                }
+                long days = ChronoUnit.DAYS.between(loan.getDueDate(), now);
+                rows += loanRepository.updateAccrual(loan.getId(), days, days * loan.getDailyFineRate(),
+                        today, loan.getDailyFineRate());
+            }
+            cursor = chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == chunkSize);
+
+        return rows;
+    }
+
+    // Préstamos creados antes de guardar la tarifa: se resuelve en lote y se deja guardada
+    private void fillMissingFineRates(List<LoanEntity> chunk) {
+        List<Long> unitIds = chunk.stream()
+                .filter(loan -> loan.getDailyFineRate() == null)
+                .map(LoanEntity::getToolUnitId)
+                .distinct()
+                .collect(Collectors.toList());
+        if (unitIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Double> rates = new HashMap<>();
+        try {
+            for (ToolUnitModel toolUnit : toolClient.getToolUnitsByIds(unitIds)) {
+                rates.put(toolUnit.getId(), toolUnit.getDailyFineRate());
+            }
+        } catch (Exception e) {
+            log.warn("Error obteniendo tarifas de multa en lote ({} unidades): {}", unitIds.size(), e.getMessage());
+        }
+
+        for (LoanEntity loan : chunk) {
+            if (loan.getDailyFineRate() == null) {
+                loan.setDailyFineRate(rates.get(loan.getToolUnitId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.KardexClient;
+import com.example.loans_service.entity.KardexOutboxEntity;
+import com.example.loans_service.entity.OutboxStatus;
+import com.example.loans_service.model.KardexRequest;
+import com.example.loans_service.model.MovementType;
+import com.example.loans_service.repository.KardexOutboxRepository;
+import feign.FeignException;
+import feign.Request;
+import feign.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Relay del outbox contra H2 (el reclamo usa la consulta nativa con SKIP LOCKED) y Kardex simulado
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KardexOutboxServiceTest {
+
+    private static final Long INVALID_UNIT = 99L;
+    private static final Request BATCH_REQUEST = Request.create(Request.HttpMethod.POST,
+            "/api/kardex/movements/batch", Map.of(), null, StandardCharsets.UTF_8, null);
+
+    @Autowired
+    private KardexOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final KardexClient kardexClient = mock(KardexClient.class);
+    private final List<List<KardexRequest>> sentBatches = new ArrayList<>();
+    private KardexOutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new KardexOutboxService(outboxRepository, kardexClient,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(outboxService, "batchSize", 100);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 2);
+        ReflectionTestUtils.setField(outboxService, "baseBackoffMs", 0L);
+        ReflectionTestUtils.setField(outboxService, "leaseMs", 60_000L);
+
+        // Kardex rechaza cualquier lote que incluya la unidad inválida, como el endpoint todo o nada
+        doAnswer(invocation -> {
+            List<KardexRequest> batch = new ArrayList<>(invocation.getArgument(0));
+            sentBatches.add(batch);
+            if (batch.stream().anyMatch(request -> INVALID_UNIT.equals(request.getToolUnitId()))) {
+                throw new FeignException.InternalServerError("Unidad inválida", BATCH_REQUEST, null, null);
+            }
+            return null;
+        }).when(kardexClient).registerMovements(anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void sendsPendingEntriesOnceWithTheirIdAsIdempotencyKey() {
+        List<KardexOutboxEntity> entries = enqueue(1L, 2L, 3L);
+
+        outboxService.relay();
+        outboxService.relay();
+
+        assertEquals(1, sentBatches.size());
+        assertEquals(entries.stream().map(entry -> "loans-outbox-" + entry.getId()).collect(Collectors.toList()),
+                sentBatches.get(0).stream().map(KardexRequest::getIdempotencyKey).collect(Collectors.toList()));
+        outboxRepository.findAll().forEach(entry -> {
+            assertEquals(OutboxStatus.SENT, entry.getStatus());
+            assertEquals(0, entry.getAttempts());
+        });
+    }
+
+    @Test
+    void rejectedBatchIsSplitSoOnlyTheInvalidEntryIsCharged() {
+        enqueue(1L, 2L, INVALID_UNIT, 4L, 5L, 6L, 7L, 8L);
+
+        outboxService.relay();
+
+        for (KardexOutboxEntity entry : outboxRepository.findAll()) {
+            if (INVALID_UNIT.equals(entry.getToolUnitId())) {
+                assertEquals(OutboxStatus.PENDING, entry.getStatus());
+                assertEquals(1, entry.getAttempts());
+                assertTrue(entry.getLastError().contains("Unidad inválida"));
+            } else {
+                assertEquals(OutboxStatus.SENT, entry.getStatus(), "Movimiento de la unidad " + entry.getToolUnitId());
+                assertEquals(0, entry.getAttempts());
+            }
+        }
+    }
+
+    @Test
+    void invalidEntryGoesToFailedAfterMaxAttempts() {
+        enqueue(INVALID_UNIT);
+
+        outboxService.relay();
+        outboxService.relay();
+        outboxService.relay();
+
+        KardexOutboxEntity entry = outboxRepository.findAll().get(0);
+        assertEquals(OutboxStatus.FAILED, entry.getStatus());
+        assertEquals(2, entry.getAttempts());
+        // Ya en FAILED no se vuelve a enviar
+        assertEquals(2, sentBatches.size());
+    }
+
+    @Test
+    void laterMovementOfAFailedUnitWaitsBehindIt() {
+        ReflectionTestUtils.setField(outboxService, "baseBackoffMs", 60_000L);
+        KardexOutboxEntity valid = enqueue(INVALID_UNIT, 2L).get(1);
+        KardexOutboxEntity later = enqueue(INVALID_UNIT).get(0);
+
+        outboxService.relay();
+
+        // Lote completo rechazado, luego la mitad con el inválido; la otra mitad sale sin el posterior
+        assertEquals(3, sentBatches.size());
+        assertEquals(List.of("loans-outbox-" + valid.getId()),
+                sentBatches.get(2).stream().map(KardexRequest::getIdempotencyKey).collect(Collectors.toList()));
+        KardexOutboxEntity waiting = outboxRepository.findById(later.getId()).orElseThrow();
+        assertEquals(OutboxStatus.PENDING, waiting.getStatus());
+        assertEquals(0, waiting.getAttempts());
+        // Liberado sin intento, pero no se reclama mientras el anterior de su unidad espera reintento
+        assertTrue(outboxRepository.lockReadyBatch(LocalDateTime.now(), 100).stream()
+                .noneMatch(entry -> entry.getId().equals(later.getId())));
+    }
+
+    @Test
+    void unreachableKardexIsNotSplitAndEveryEntryIsRescheduled() {
+        doAnswer(invocation -> {
+            sentBatches.add(invocation.getArgument(0));
+            throw new RetryableException(-1, "Connection refused", Request.HttpMethod.POST, (Long) null, BATCH_REQUEST);
+        }).when(kardexClient).registerMovements(anyList());
+        enqueue(1L, 2L, 3L, 4L);
+
+        outboxService.relay();
+
+        verify(kardexClient, times(1)).registerMovements(anyList());
+        outboxRepository.findAll().forEach(entry -> {
+            assertEquals(OutboxStatus.PENDING, entry.getStatus());
+            assertEquals(1, entry.getAttempts());
+        });
+    }
+
+    @Test
+    void claimedEntriesAreInvisibleToOtherRelaysUntilTheLeaseExpires() {
+        List<List<KardexOutboxEntity>> seenByOtherReplica = new ArrayList<>();
+        TransactionTemplate otherReplica = new TransactionTemplate(transactionManager);
+        doAnswer(invocation -> {
+            sentBatches.add(invocation.getArgument(0));
+            seenByOtherReplica.add(otherReplica.execute(status ->
+                    outboxRepository.lockReadyBatch(LocalDateTime.now(), 100)));
+            return null;
+        }).when(kardexClient).registerMovements(anyList());
+        enqueue(1L, 2L);
+
+        outboxService.relay();
+
+        assertEquals(1, seenByOtherReplica.size());
+        assertTrue(seenByOtherReplica.get(0).isEmpty());
+        outboxRepository.findAll().forEach(entry -> assertEquals(OutboxStatus.SENT, entry.getStatus()));
+    }
+
+    private List<KardexOutboxEntity> enqueue(Long... toolUnitIds) {
+        List<KardexOutboxEntity> entries = new ArrayList<>();
+        for (Long toolUnitId : toolUnitIds) {
+            KardexOutboxEntity entry = new KardexOutboxEntity();
+            entry.setMovementType(MovementType.LOAN);
+            entry.setToolUnitId(toolUnitId);
+            entry.setToolGroupId(100L);
+            entry.setCustomerId(1L);
+            entry.setDetails("Préstamo");
+            entry.setUserId("tester");
+            entry.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            entries.add(entry);
+        }
+        return outboxRepository.saveAll(entries);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.CustomerClient;
+import com.example.loans_service.client.ToolClient;
+import com.example.loans_service.dto.BatchLoanRequestDTO;
+import com.example.loans_service.entity.LoanEntity;
+import com.example.loans_service.model.CustomerModel;
+import com.example.loans_service.model.ToolUnitModel;
+import com.example.loans_service.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Validaciones del préstamo múltiple, de las validaciones previas en paralelo y de la multa al devolver, sin contexto Spring
+class LoanServiceTest {
+
+    private static final Long CUSTOMER_ID = 1L;
+
+    private final LoanRepository loanRepository = mock(LoanRepository.class);
+    private final CustomerClient customerClient = mock(CustomerClient.class);
+    private final ToolClient toolClient = mock(ToolClient.class);
+    private final KardexOutboxService kardexOutboxService = mock(KardexOutboxService.class);
+    private final ExecutorService loanCheckExecutor = Executors.newFixedThreadPool(4);
+
+    private LoanService loanService;
+
+    @BeforeEach
+    void setUp() {
+        loanService = new LoanService(loanRepository, customerClient, toolClient, kardexOutboxService,
+                new SimpleMeterRegistry(), loanCheckExecutor, mock(EntityManager.class));
+        ReflectionTestUtils.setField(loanService, "customerCheckTimeoutMs", 3_000L);
+        ReflectionTestUtils.setField(loanService, "limitsCheckTimeoutMs", 2_000L);
+        when(customerClient.validateForLoan(CUSTOMER_ID)).thenReturn(activeCustomer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanCheckExecutor.shutdownNow();
+    }
+
+    @Test
+    void basketOverActiveLoanLimitIsRejectedBeforeReserving() {
+        when(loanRepository.countByCustomerIdAndReturnDateIsNull(CUSTOMER_ID)).thenReturn(3L);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> loanService.registerLoans(basket(10L, 11L, 12L), "tester"));
+
+        assertEquals("El cliente tiene 3 préstamos activos y pide 3 más (máximo permitido: 5)", error.getMessage());
+        verifyNoInteractions(toolClient, kardexOutboxService);
+    }
+
+    @Test
+    void basketFillingTheLimitExactlyPassesTheCountCheck() {
+        when(loanRepository.countByCustomerIdAndReturnDateIsNull(CUSTOMER_ID)).thenReturn(3L);
+        when(loanRepository.existsByCustomerIdAndToolGroupIdInAndReturnDateIsNull(CUSTOMER_ID, List.of(10L, 11L)))
+                .thenReturn(true);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> loanService.registerLoans(basket(10L, 11L), "tester"));
+
+        // Pasa el límite de 5 y cae en la siguiente regla
+        assertEquals("El cliente ya tiene en préstamo una de las herramientas solicitadas", error.getMessage());
+        verifyNoInteractions(toolClient, kardexOutboxService);
+    }
+
+    @Test
+    void basketWithRepeatedToolIsRejectedWithoutRemoteCalls() {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> loanService.registerLoans(basket(10L, 10L), "tester"));
+
+        assertEquals("No se puede pedir más de una unidad de la misma herramienta", error.getMessage());
+        verify(customerClient, never()).validateForLoan(anyLong());
+        verifyNoInteractions(loanRepository, toolClient);
+    }
+
+    @Test
+    void failedLimitsCheckInterruptsCustomerCheck() throws Exception {
+        CountDownLatch customerCallStarted = new CountDownLatch(1);
+        CountDownLatch customerCallInterrupted = new CountDownLatch(1);
+        when(customerClient.validateForLoan(CUSTOMER_ID)).thenAnswer(invocation -> {
+            customerCallStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                customerCallInterrupted.countDown();
+                throw e;
+            }
+            return activeCustomer();
+        });
+        when(loanRepository.countByCustomerIdAndReturnDateIsNull(CUSTOMER_ID)).thenAnswer(invocation -> {
+            customerCallStarted.await();
+            return 5L;
+        });
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> loanService.registerLoans(basket(10L), "tester"));
+
+        assertTrue(error.getMessage().startsWith("El cliente tiene 5 préstamos activos"));
+        assertTrue(customerCallInterrupted.await(1, TimeUnit.SECONDS), "La validación del cliente siguió corriendo");
+    }
+
+    @Test
+    void timedOutCheckFailsFastAndIsInterrupted() throws Exception {
+        ReflectionTestUtils.setField(loanService, "customerCheckTimeoutMs", 100L);
+        CountDownLatch customerCallInterrupted = new CountDownLatch(1);
+        when(customerClient.validateForLoan(CUSTOMER_ID)).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                customerCallInterrupted.countDown();
+                throw e;
+            }
+            return activeCustomer();
+        });
+        when(loanRepository.countByCustomerIdAndReturnDateIsNull(CUSTOMER_ID)).thenReturn(0L);
+        when(loanRepository.existsByCustomerIdAndToolGroupIdInAndReturnDateIsNull(any(), anyCollection()))
+                .thenReturn(false);
+
+        long start = System.nanoTime();
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> loanService.registerLoans(basket(10L), "tester"));
+
+        assertEquals("Tiempo de espera agotado en validación: customer", error.getMessage());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+        assertTrue(customerCallInterrupted.await(1, TimeUnit.SECONDS), "La validación del cliente siguió corriendo");
+        verifyNoInteractions(toolClient);
+    }
+
+    @Test
+    void lateReturnUsesTheSnapshotFineRate() {
+        LoanEntity loan = new LoanEntity();
+        loan.setId(7L);
+        loan.setCustomerId(CUSTOMER_ID);
+        loan.setToolUnitId(20L);
+        loan.setDueDate(LocalDateTime.now().minusDays(3).minusHours(1));
+        loan.setDailyFineRate(1_000.0);
+        when(loanRepository.findById(7L)).thenReturn(Optional.of(loan));
+        when(loanRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(customerClient.getCustomer(CUSTOMER_ID)).thenReturn(activeCustomer());
+        // La tarifa de la herramienta cambió después de prestarla
+        ToolUnitModel toolUnit = new ToolUnitModel();
+        toolUnit.setId(20L);
+        toolUnit.setDailyFineRate(5_000.0);
+        toolUnit.setToolGroupName("Taladro");
+        when(toolClient.getToolUnit(20L)).thenReturn(toolUnit);
+
+        loanService.returnLoan(7L, null, false, "tester");
+
+        assertEquals(3_000.0, loan.getFineAmount());
+    }
+
+    private static BatchLoanRequestDTO basket(Long... toolGroupIds) {
+        BatchLoanRequestDTO request = new BatchLoanRequestDTO();
+        request.setCustomerId(CUSTOMER_ID);
+        request.setToolGroupIds(List.of(toolGroupIds));
+        request.setDueDate(LocalDateTime.now().plusDays(7).withNano(0).toString());
+        return request;
+    }
+
+    private static CustomerModel activeCustomer() {
+        CustomerModel customer = new CustomerModel();
+        customer.setId(CUSTOMER_ID);
+        customer.setName("Cliente");
+        customer.setStatus("ACTIVE");
+        return customer;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.CustomerClient;
+import com.example.loans_service.client.ToolClient;
+import com.example.loans_service.entity.LoanEntity;
+import com.example.loans_service.entity.LoanStatus;
+import com.example.loans_service.model.CustomerModel;
+import com.example.loans_service.model.ToolUnitModel;
+import com.example.loans_service.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanSnapshotBackfillJobTest {
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private final CustomerClient customerClient = mock(CustomerClient.class);
+    private final ToolClient toolClient = mock(ToolClient.class);
+    private LoanSnapshotBackfillJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new LoanSnapshotBackfillJob(loanRepository, customerClient, toolClient);
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+    }
+
+    @Test
+    void fillsEveryRangeAndStopsAfterACleanPass() {
+        LoanEntity first = loanRepository.save(loan(1L, 10L));
+        LoanEntity orphan = loanRepository.save(loan(2L, 20L));
+        for (int i = 0; i < 3; i++) {
+            loanRepository.save(loan(1L, 10L));
+        }
+        when(customerClient.getCustomersByIds(anyList())).thenReturn(List.of(customer(1L, "Ana")));
+        when(toolClient.getToolUnitsByIds(anyList())).thenReturn(List.of(toolUnit(10L, "Taladro")));
+
+        job.run();
+
+        LoanEntity filled = loanRepository.findById(first.getId()).orElseThrow();
+        assertEquals("Ana", filled.getCustomerName());
+        assertEquals("Taladro", filled.getToolName());
+        // Cliente y unidad inexistentes: queda en null, sin reintentos indefinidos
+        assertNull(loanRepository.findById(orphan.getId()).orElseThrow().getCustomerName());
+
+        clearInvocations(customerClient, toolClient);
+        job.run();
+        verifyNoInteractions(customerClient, toolClient);
+    }
+
+    @Test
+    void remoteFailureKeepsTheJobScheduled() {
+        LoanEntity loan = loanRepository.save(loan(1L, 10L));
+        when(customerClient.getCustomersByIds(anyList()))
+                .thenThrow(new RuntimeException("Connection refused"))
+                .thenReturn(List.of(customer(1L, "Ana")));
+        when(toolClient.getToolUnitsByIds(anyList())).thenReturn(List.of(toolUnit(10L, "Taladro")));
+
+        job.run();
+        assertNull(loanRepository.findById(loan.getId()).orElseThrow().getCustomerName());
+
+        job.run();
+        assertEquals("Ana", loanRepository.findById(loan.getId()).orElseThrow().getCustomerName());
+        verify(customerClient, times(2)).getCustomersByIds(anyList());
+    }
+
+    @Test
+    void loanReturnedDuringTheRunKeepsItsReturnAndFine() {
+        LoanEntity loan = loanRepository.save(loan(1L, 10L));
+        LocalDateTime returnedAt = LocalDateTime.now().withNano(0);
+        when(customerClient.getCustomersByIds(anyList())).thenReturn(List.of(customer(1L, "Ana")));
+        // La devolución se confirma mientras el job espera los nombres de Tool Service
+        when(toolClient.getToolUnitsByIds(anyList())).thenAnswer(invocation -> {
+            LoanEntity returned = loanRepository.findById(loan.getId()).orElseThrow();
+            returned.setReturnDate(returnedAt);
+            returned.setStatus(LoanStatus.RETURNED);
+            returned.setFineAmount(2_000.0);
+            loanRepository.save(returned);
+            return List.of(toolUnit(10L, "Taladro"));
+        });
+
+        job.run();
+
+        LoanEntity after = loanRepository.findById(loan.getId()).orElseThrow();
+        assertEquals(LoanStatus.RETURNED, after.getStatus());
+        assertEquals(returnedAt, after.getReturnDate());
+        assertEquals(2_000.0, after.getFineAmount());
+        assertEquals("Ana", after.getCustomerName());
+        assertEquals("Taladro", after.getToolName());
+    }
+
+    private static LoanEntity loan(Long customerId, Long toolUnitId) {
+        LoanEntity loan = new LoanEntity();
+        loan.setCustomerId(customerId);
+        loan.setToolUnitId(toolUnitId);
+        loan.setToolGroupId(100L);
+        loan.setDueDate(LocalDateTime.now().plusDays(7));
+        return loan;
+    }
+
+    private static CustomerModel customer(Long id, String name) {
+        CustomerModel customer = new CustomerModel();
+        customer.setId(id);
+        customer.setName(name);
+        return customer;
+    }
+
+    private static ToolUnitModel toolUnit(Long id, String toolGroupName) {
+        ToolUnitModel toolUnit = new ToolUnitModel();
+        toolUnit.setId(id);
+        toolUnit.setToolGroupName(toolGroupName);
+        return toolUnit;
+    }
+}
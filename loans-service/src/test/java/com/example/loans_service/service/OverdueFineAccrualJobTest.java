@@ -0,0 +1,153 @@
+package com.example.loans_service.service;
+
+import com.example.loans_service.client.ToolClient;
+import com.example.loans_service.entity.LoanEntity;
+import com.example.loans_service.entity.LoanStatus;
+import com.example.loans_service.model.ToolUnitModel;
+import com.example.loans_service.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Sin transacción de prueba: como en producción, la lectura del bloque y la escritura del
+// acumulado van en transacciones distintas y una devolución puede confirmarse entre ambas
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OverdueFineAccrualJobTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 10, 0, 15);
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private final ToolClient toolClient = mock(ToolClient.class);
+    private OverdueFineAccrualJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new OverdueFineAccrualJob(loanRepository, toolClient, new SimpleMeterRegistry());
+        // Bloques chicos para cruzar varios cortes del cursor con pocos préstamos
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loanRepository.deleteAll();
+    }
+
+    @Test
+    void secondRunOnSameDayChargesOnce() {
+        LoanEntity loan = loanRepository.save(loan(NOW.minusDays(3), 1_000.0));
+
+        assertEquals(1, job.accrue(NOW));
+        assertEquals(0, job.accrue(NOW.plusHours(6)));
+
+        LoanEntity accrued = loanRepository.findById(loan.getId()).orElseThrow();
+        assertEquals(3L, accrued.getDaysOverdue());
+        assertEquals(3_000.0, accrued.getAccruedFine());
+        assertEquals(NOW.toLocalDate(), accrued.getAccruedOn());
+    }
+
+    @Test
+    void nextDayRecomputesFromDueDate() {
+        LoanEntity loan = loanRepository.save(loan(NOW.minusDays(3), 1_000.0));
+
+        job.accrue(NOW);
+        job.accrue(NOW.plusDays(1));
+
+        LoanEntity accrued = loanRepository.findById(loan.getId()).orElseThrow();
+        assertEquals(4L, accrued.getDaysOverdue());
+        assertEquals(4_000.0, accrued.getAccruedFine());
+    }
+
+    @Test
+    void walksEveryChunkAndSkipsLoansNotOverdueOrReturned() {
+        for (int i = 0; i < 5; i++) {
+            loanRepository.save(loan(NOW.minusDays(1), 500.0));
+        }
+        loanRepository.save(loan(NOW.plusDays(1), 500.0));
+        LoanEntity returned = loan(NOW.minusDays(2), 500.0);
+        returned.setReturnDate(NOW.minusDays(1));
+        loanRepository.save(returned);
+
+        assertEquals(5, job.accrue(NOW));
+        verify(toolClient, never()).getToolUnitsByIds(anyList());
+    }
+
+    @Test
+    void missingFineRateIsResolvedInBulkOrRetriedNextRun() {
+        LoanEntity known = loanRepository.save(loan(NOW.minusDays(2), null));
+        LoanEntity unknown = loan(NOW.minusDays(2), null);
+        unknown.setToolUnitId(99L);
+        unknown = loanRepository.save(unknown);
+
+        ToolUnitModel toolUnit = new ToolUnitModel();
+        toolUnit.setId(known.getToolUnitId());
+        toolUnit.setDailyFineRate(700.0);
+        when(toolClient.getToolUnitsByIds(anyList())).thenReturn(List.of(toolUnit));
+
+        assertEquals(1, job.accrue(NOW));
+
+        LoanEntity resolved = loanRepository.findById(known.getId()).orElseThrow();
+        assertEquals(700.0, resolved.getDailyFineRate());
+        assertEquals(1_400.0, resolved.getAccruedFine());
+        // Sin tarifa el día no queda marcado: la próxima ejecución lo vuelve a intentar
+        assertNull(loanRepository.findById(unknown.getId()).orElseThrow().getAccruedOn());
+    }
+
+    @Test
+    void loanReturnedDuringTheRunKeepsItsReturnAndFine() {
+        LoanEntity loan = loanRepository.save(loan(NOW.minusDays(3), null));
+        ToolUnitModel toolUnit = new ToolUnitModel();
+        toolUnit.setId(loan.getToolUnitId());
+        toolUnit.setDailyFineRate(1_000.0);
+        // La devolución se confirma mientras el job espera la tarifa de Tool Service
+        when(toolClient.getToolUnitsByIds(anyList())).thenAnswer(invocation -> {
+            LoanEntity returned = loanRepository.findById(loan.getId()).orElseThrow();
+            returned.setReturnDate(NOW.minusHours(1));
+            returned.setStatus(LoanStatus.RETURNED);
+            returned.setFineAmount(2_000.0);
+            loanRepository.save(returned);
+            return List.of(toolUnit);
+        });
+
+        assertEquals(0, job.accrue(NOW));
+
+        LoanEntity after = loanRepository.findById(loan.getId()).orElseThrow();
+        assertEquals(LoanStatus.RETURNED, after.getStatus());
+        assertEquals(NOW.minusHours(1), after.getReturnDate());
+        assertEquals(2_000.0, after.getFineAmount());
+        assertNull(after.getAccruedOn());
+    }
+
+    private static LoanEntity loan(LocalDateTime dueDate, Double dailyFineRate) {
+        LoanEntity loan = new LoanEntity();
+        loan.setCustomerId(1L);
+        loan.setToolUnitId(10L);
+        loan.setToolGroupId(100L);
+        loan.setLoanDate(dueDate.minusDays(7));
+        loan.setDueDate(dueDate);
+        loan.setDailyFineRate(dailyFineRate);
+        return loan;
+    }
+}
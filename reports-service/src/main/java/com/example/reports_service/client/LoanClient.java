@@ -1,8 +1,10 @@
 package com.example.reports_service.client;
 
 import com.example.reports_service.model.LoanActiveDTO;
+import com.example.reports_service.model.LoanPageModel;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -21,4 +23,8 @@ public interface LoanClient {
     @GetMapping("/all-closed")
     List<LoanActiveDTO> getAllClosedLoans();
 
+    @GetMapping("/all-closed/page")
+    LoanPageModel getClosedLoansPage(@RequestParam(value = "after", required = false) Long after,
+                                     @RequestParam("size") int size);
+
 }
\ No newline at end of file
@@ -18,4 +18,5 @@ public class LoanActiveDTO {
     private Double fineAmount;
     private Double damageCharge;
     private String status;
+    private Long daysOverdue;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.reports_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanPageModel {
+    private List<LoanActiveDTO> items;
+    private Long nextCursor;
+}
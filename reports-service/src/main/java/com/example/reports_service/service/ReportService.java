@@ -23,6 +23,8 @@ public class ReportService {
     private final CustomerClient customerClient;
     private final ToolClient toolClient;
 
+    private static final int CLOSED_LOANS_PAGE_SIZE = 500;
+
     // RF6.1: Listar préstamos activos y su estado
     public List<ActiveLoanReportDTO> getActiveLoansReport() {
         try {
@@ -49,7 +51,7 @@ public class ReportService {
                 Long daysOverdue = 0L;
 
                 if (loan.getDueDate() != null && loan.getDueDate().isBefore(LocalDateTime.now())) {
-                    daysOverdue = ChronoUnit.DAYS.between(loan.getDueDate(), LocalDateTime.now());
+                    daysOverdue = daysOverdueOf(loan);
                     estado = "ATRASADO (" + daysOverdue + " días)";
                 }
 
@@ -139,7 +141,7 @@ public class ReportService {
                 Long maxDaysOverdue = Stream.concat(activeLoans.stream(), resolvedLoans.stream())
                         .mapToLong(loan -> {
                             if (loan.getDueDate() != null && loan.getDueDate().isBefore(LocalDateTime.now())) {
-                                return ChronoUnit.DAYS.between(loan.getDueDate(), LocalDateTime.now());
+                                return daysOverdueOf(loan);
                             }
                             return 0L;
                         })
@@ -230,11 +232,21 @@ public class ReportService {
 
             // 2. Obtener TODOS los préstamos históricos
             List<LoanActiveDTO> allLoans = new ArrayList<>();
+            Map<String, Long> loanCountByToolName = new HashMap<>();
 
-            // ✅ NUEVO: préstamos cerrados (devueltos sin deuda)
+            // Préstamos cerrados: se recorren por páginas y solo se acumula el conteo
             try {
-                allLoans.addAll(loanClient.getAllClosedLoans());
-                log.info("Préstamos cerrados obtenidos: {}", allLoans.size());
+                long closedCount = 0;
+                Long cursor = null;
+                do {
+                    LoanPageModel page = loanClient.getClosedLoansPage(cursor, CLOSED_LOANS_PAGE_SIZE);
+                    for (LoanActiveDTO loan : page.getItems()) {
+                        countLoanByToolName(loanCountByToolName, loan);
+                    }
+                    closedCount += page.getItems().size();
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+                log.info("Préstamos cerrados obtenidos: {}", closedCount);
             } catch (Exception e) {
                 log.warn("Error obteniendo préstamos cerrados: {}", e.getMessage());
             }
@@ -251,14 +263,8 @@ public class ReportService {
             log.info("Total de préstamos para analizar: {}", allLoans.size());
 
             // 3. Contar préstamos por NOMBRE de herramienta
-            Map<String, Long> loanCountByToolName = new HashMap<>();
-
             for (LoanActiveDTO loan : allLoans) {
-                if (loan.getToolName() != null && !loan.getToolName().equals("Desconocido")) {
-                    String toolName = loan.getToolName().trim();
-                    loanCountByToolName.put(toolName,
-                            loanCountByToolName.getOrDefault(toolName, 0L) + 1L);
-                }
+                countLoanByToolName(loanCountByToolName, loan);
             }
 
             log.info("Herramientas encontradas en préstamos: {}", loanCountByToolName.size());
@@ -328,6 +334,21 @@ public class ReportService {
     }
 
     // Métodos auxiliares
+    private void countLoanByToolName(Map<String, Long> loanCountByToolName, LoanActiveDTO loan) {
+        if (loan.getToolName() != null && !loan.getToolName().equals("Desconocido")) {
+            String toolName = loan.getToolName().trim();
+            loanCountByToolName.merge(toolName, 1L, Long::sum);
+        }
+    }
+
+    // Usa los días precalculados por loans-service; si aún no se devengan, los calcula aquí
+    private long daysOverdueOf(LoanActiveDTO loan) {
+        if (loan.getDaysOverdue() != null && loan.getDaysOverdue() > 0) {
+            return loan.getDaysOverdue();
+        }
+        return ChronoUnit.DAYS.between(loan.getDueDate(), LocalDateTime.now());
+    }
+
     private int getPreviousCount(List<?> list, int currentIndex) {
         // Método para tracking
         return 0;
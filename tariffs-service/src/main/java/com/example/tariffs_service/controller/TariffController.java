@@ -38,6 +38,19 @@ public class TariffController {
         return ResponseEntity.ok(tariff);
     }
 
+    @GetMapping("/batch")
+    public ResponseEntity<List<TariffEntity>> getTariffsByIds(@RequestParam List<Long> ids) {
+        List<TariffEntity> tariffs = tariffService.getTariffsByIds(ids);
+        return ResponseEntity.ok(tariffs);
+    }
+
+    // Misma consulta con los IDs en el cuerpo, para conjuntos grandes
+    @PostMapping("/batch")
+    public ResponseEntity<List<TariffEntity>> getTariffsByIdsPost(@RequestBody List<Long> ids) {
+        List<TariffEntity> tariffs = tariffService.getTariffsByIds(ids);
+        return ResponseEntity.ok(tariffs);
+    }
+
     @GetMapping
     public ResponseEntity<List<TariffEntity>> getAllTariffs() {
         List<TariffEntity> tariffs = tariffService.getAllTariffs();
@@ -35,6 +35,14 @@ public class TariffService {
                 .orElseThrow(() -> new RuntimeException("Tarifa no encontrada"));
     }
 
+    // Consulta masiva para Tool Service: una sola query para todas las tarifas de una página
+    public List<TariffEntity> getTariffsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return tariffRepository.findAllById(ids);
+    }
+
     public List<TariffEntity> getAllTariffs() {
         return tariffRepository.findAll();
     }
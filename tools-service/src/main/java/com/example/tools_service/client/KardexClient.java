@@ -1,9 +1,13 @@
 package com.example.tools_service.client;
 
+import com.example.tools_service.model.KardexRequest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "kardex-service", path = "/api/kardex")
 public interface KardexClient {
 
@@ -81,4 +85,8 @@ public interface KardexClient {
                          @RequestParam Long toolGroupId,
                          @RequestParam String toolGroupName,
                          @RequestParam String userName);
-}
\ No newline at end of file
+
+    // Varios movimientos en una sola llamada (cambio de estado masivo)
+    @PostMapping("/movements/batch")
+    void registerMovements(@RequestBody List<KardexRequest> requests);
+}
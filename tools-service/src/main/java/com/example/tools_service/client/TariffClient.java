@@ -4,6 +4,8 @@ import com.example.tools_service.model.TariffModel;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @FeignClient(name = "tariffs-service", path = "/api/tariffs")
 public interface TariffClient {
 
@@ -20,4 +22,7 @@ public interface TariffClient {
 
     @GetMapping("/{id}")
     TariffModel getTariff(@PathVariable Long id);
+
+    @PostMapping("/batch")
+    List<TariffModel> getTariffsByIds(@RequestBody List<Long> ids);
 }
\ No newline at end of file
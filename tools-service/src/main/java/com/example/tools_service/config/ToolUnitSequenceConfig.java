@@ -0,0 +1,37 @@
+package com.example.tools_service.config;
+
+import com.example.tools_service.entity.ToolUnitEntity;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Los IDs de tool_units pasaron de AUTO_INCREMENT a una secuencia (tabla tool_units_seq en MySQL).
+// Al arrancar se adelanta la secuencia por encima del mayor id existente para no chocar con filas
+// anteriores. El optimizador pooled entrega hasta (next_val - allocationSize + 1), de ahí el margen.
+// Se ejecuta antes de levantar el servidor web y es idempotente entre instancias (solo avanza).
+@Configuration
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class ToolUnitSequenceConfig {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequence() {
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE tool_units_seq SET next_val = GREATEST(next_val, " +
+                            "(SELECT COALESCE(MAX(id), 0) FROM tool_units) + 1 + ?)",
+                    ToolUnitEntity.ID_ALLOCATION_SIZE);
+            log.info("Secuencia tool_units_seq alineada ({} filas)", updated);
+        } catch (DataAccessException e) {
+            // Bases con secuencias nativas no usan la tabla de emulación
+            log.info("Secuencia tool_units_seq no alineada: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.tools_service.controller;
 
+import com.example.tools_service.dto.ToolGroupPageDTO;
 import com.example.tools_service.dto.ToolGroupRequestDTO;
 import com.example.tools_service.dto.ToolGroupResponseDTO;
 import com.example.tools_service.service.ToolGroupService;
@@ -46,6 +47,27 @@ public class ToolGroupController {
         return ResponseEntity.ok(groups);
     }
 
+    // Paginado y ordenado: sort = id | name | category | replacementValue, direction = asc | desc
+    @GetMapping("/available/page")
+    public ResponseEntity<ToolGroupPageDTO> getAvailableToolGroupsPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        ToolGroupPageDTO groups = toolGroupService.getAvailableToolGroupsPage(page, size, sort, direction);
+        return ResponseEntity.ok(groups);
+    }
+
+    // Reposición de stock de un grupo existente
+    @PostMapping("/{id}/units")
+    public ResponseEntity<ToolGroupResponseDTO> addUnits(
+            @PathVariable Long id,
+            @RequestParam int quantity,
+            @RequestParam(required = false) String userName) {
+        ToolGroupResponseDTO updated = toolGroupService.addUnits(id, quantity, userName);
+        return ResponseEntity.ok(updated);
+    }
+
     @PutMapping("/{id}/tariff")
     public ResponseEntity<ToolGroupResponseDTO> updateTariff(
             @PathVariable Long id,
@@ -1,6 +1,9 @@
 package com.example.tools_service.controller;
 
+import com.example.tools_service.dto.ToolUnitPageDTO;
 import com.example.tools_service.dto.ToolUnitResponseDTO;
+import com.example.tools_service.dto.UnitStatusChangeRequestDTO;
+import com.example.tools_service.dto.UnitStatusChangeResultDTO;
 import com.example.tools_service.entity.ToolUnitEntity;
 import com.example.tools_service.model.ToolUnitModel;
 import com.example.tools_service.service.ToolUnitService;
@@ -32,6 +35,13 @@ public class ToolUnitController {
         return ResponseEntity.ok(unit);
     }
 
+    // Para Loan Service - detalle de varias unidades en una sola llamada
+    @PostMapping("/batch")
+    public ResponseEntity<List<ToolUnitResponseDTO>> getUnitsByIds(@RequestBody List<Long> ids) {
+        List<ToolUnitResponseDTO> units = toolUnitService.getUnitsByIds(ids);
+        return ResponseEntity.ok(units);
+    }
+
     // CRÍTICO para Loan Service - para reservar unidad
     @GetMapping("/groups/{groupId}/available")
     public ResponseEntity<ToolUnitModel> getAvailableUnit(@PathVariable Long groupId) {
@@ -39,6 +49,22 @@ public class ToolUnitController {
         return ResponseEntity.ok(unit);
     }
 
+    // CRÍTICO para Loan Service - elige y marca como prestada una unidad en una sola llamada
+    @PostMapping("/groups/{groupId}/reserve")
+    public ResponseEntity<ToolUnitModel> reserveAvailableUnit(@PathVariable Long groupId,
+                                                              @RequestParam(required = false) String userName) {
+        ToolUnitModel unit = toolUnitService.reserveAvailableUnit(groupId, userName);
+        return ResponseEntity.ok(unit);
+    }
+
+    // Para Loan Service - reserva una unidad por grupo, todo o nada (préstamo múltiple)
+    @PostMapping("/groups/reserve")
+    public ResponseEntity<List<ToolUnitModel>> reserveAvailableUnits(@RequestBody List<Long> groupIds,
+                                                                     @RequestParam(required = false) String userName) {
+        List<ToolUnitModel> units = toolUnitService.reserveAvailableUnits(groupIds, userName);
+        return ResponseEntity.ok(units);
+    }
+
     // CRÍTICO para Loan Service - para cambiar estado
     @PutMapping("/{id}/status")
     public void updateStatus(@PathVariable Long id,
@@ -47,6 +73,15 @@ public class ToolUnitController {
         toolUnitService.updateStatus(id, status, userName);
     }
 
+    // Cambio de estado masivo: resultado por ítem
+    @PutMapping("/status")
+    public ResponseEntity<List<UnitStatusChangeResultDTO>> updateStatuses(
+            @RequestBody List<UnitStatusChangeRequestDTO> changes,
+            @RequestParam(required = false) String userName) {
+        List<UnitStatusChangeResultDTO> results = toolUnitService.updateStatuses(changes, userName);
+        return ResponseEntity.ok(results);
+    }
+
     @PutMapping("/{id}/repair-resolution")
     public ToolUnitEntity repairResolution(@PathVariable Long id,
                                            @RequestParam boolean retire,
@@ -60,6 +95,18 @@ public class ToolUnitController {
         return ResponseEntity.ok(units);
     }
 
+    // Inventario paginado; filtros opcionales por estado, grupo y categoría
+    @GetMapping("/page")
+    public ResponseEntity<ToolUnitPageDTO> getUnitsPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long groupId,
+            @RequestParam(required = false) String category) {
+        ToolUnitPageDTO units = toolUnitService.getUnitsPage(page, size, status, groupId, category);
+        return ResponseEntity.ok(units);
+    }
+
     // Opcional - para reportes
     @GetMapping("/groups/{groupId}/stock")
     public ResponseEntity<Long> getAvailableStock(@PathVariable Long groupId) {
@@ -0,0 +1,16 @@
+package com.example.tools_service.dto;
+
+import com.example.tools_service.entity.ToolStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila de la agregación de stock: cantidad de unidades de un grupo en un estado
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupStatusCountDTO {
+    private Long toolGroupId;
+    private ToolStatus status;
+    private Long count;
+}
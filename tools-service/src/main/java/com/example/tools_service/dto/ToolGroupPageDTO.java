@@ -0,0 +1,18 @@
+package com.example.tools_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Página de grupos (paginación por offset con orden)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolGroupPageDTO {
+    private List<ToolGroupResponseDTO> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -0,0 +1,18 @@
+package com.example.tools_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Página del inventario de unidades (paginación por offset, orden por id)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolUnitPageDTO {
+    private List<ToolUnitResponseDTO> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
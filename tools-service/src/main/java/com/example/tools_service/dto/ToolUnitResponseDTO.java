@@ -18,4 +18,10 @@ public class ToolUnitResponseDTO {
     private Double dailyRentalRate;
     private Double dailyFineRate;
     private Double replacementValue;
+
+    // Constructor para la proyección JPQL: las tarifas se completan después, en lote por página
+    public ToolUnitResponseDTO(Long id, Long toolGroupId, String toolGroupName, String category,
+                               ToolStatus status, Long tariffId, Double replacementValue) {
+        this(id, toolGroupId, toolGroupName, category, status, tariffId, null, null, replacementValue);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.example.tools_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnitStatusChangeRequestDTO {
+    private Long unitId;
+    private String status; // "AVAILABLE", "IN_REPAIR", "RETIRED", etc.
+}
@@ -0,0 +1,16 @@
+package com.example.tools_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resultado por ítem del cambio de estado masivo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnitStatusChangeResultDTO {
+    private Long unitId;
+    private String status;
+    private boolean success;
+    private String message;
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OptimisticLock;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,7 +31,13 @@ public class ToolGroupEntity {
     @Column(name = "tariff_id", nullable = false)
     private Long tariffId;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // Excluida del versionado: cambiar unidades no debe invalidar la versión del grupo
     @OneToMany(mappedBy = "toolGroup", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OptimisticLock(excluded = true)
     @JsonManagedReference  // ← AÑADIR ESTO
     private List<ToolUnitEntity> units = new ArrayList<>();
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.tools_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Contadores de stock por grupo y estado, mantenidos en la misma transacción que cada cambio de estado
+@Entity
+@Table(name = "tool_group_stock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolGroupStockEntity {
+    @Id
+    @Column(name = "tool_group_id")
+    private Long toolGroupId;
+
+    @Column(nullable = false)
+    private long available;
+
+    @Column(nullable = false)
+    private long loaned;
+
+    @Column(name = "in_repair", nullable = false)
+    private long inRepair;
+
+    @Column(nullable = false)
+    private long retired;
+}
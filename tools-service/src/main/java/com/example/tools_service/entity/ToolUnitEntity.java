@@ -8,13 +8,20 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "tool_units")
+@Table(name = "tool_units", indexes = {
+        @Index(name = "idx_tool_units_group_status", columnList = "tool_group_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ToolUnitEntity {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Secuencia con bloques de 50 (en MySQL Hibernate la emula con la tabla tool_units_seq).
+    // A diferencia de IDENTITY, permite agrupar los INSERT en lotes JDBC.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tool_units_seq")
+    @SequenceGenerator(name = "tool_units_seq", sequenceName = "tool_units_seq", allocationSize = ToolUnitEntity.ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -25,4 +32,10 @@ public class ToolUnitEntity {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private ToolStatus status = ToolStatus.AVAILABLE;
+
+    // Bloqueo optimista: dos transiciones concurrentes sobre la misma unidad no se pisan;
+    // la segunda falla al hacer flush y se reintenta con el estado fresco (StatusTransitionExecutor)
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
\ No newline at end of file
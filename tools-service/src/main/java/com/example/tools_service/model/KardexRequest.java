@@ -0,0 +1,18 @@
+package com.example.tools_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Movimiento para el registro en lote de Kardex (POST /api/kardex/movements/batch)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexRequest {
+    private String movementType; // REPAIR, RETIRE, ...
+    private Long toolUnitId;
+    private Long toolGroupId;
+    private Long customerId;
+    private String details;
+    private String userId;
+}
@@ -1,13 +1,35 @@
 package com.example.tools_service.repository;
 
 import com.example.tools_service.entity.ToolGroupEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ToolGroupRepository extends JpaRepository<ToolGroupEntity, Long> {
     Optional<ToolGroupEntity> findByName(String name);
     boolean existsByName(String name);
-}
\ No newline at end of file
+
+    @Query("SELECT g.id FROM ToolGroupEntity g")
+    List<Long> findAllIds();
+
+    @Query("SELECT g.tariffId FROM ToolGroupEntity g WHERE g.id = :id")
+    Optional<Long> findTariffIdById(@Param("id") Long id);
+
+    // Solo grupos con al menos una unidad disponible; el EXISTS usa el índice (tool_group_id, status)
+    String WITH_AVAILABLE_UNITS = "FROM ToolGroupEntity g WHERE EXISTS (SELECT u.id FROM ToolUnitEntity u " +
+            "WHERE u.toolGroup = g AND u.status = com.example.tools_service.entity.ToolStatus.AVAILABLE)";
+
+    @Query(value = "SELECT g " + WITH_AVAILABLE_UNITS, countQuery = "SELECT COUNT(g) " + WITH_AVAILABLE_UNITS)
+    Page<ToolGroupEntity> findWithAvailableUnits(Pageable pageable);
+
+    @Query("SELECT g " + WITH_AVAILABLE_UNITS)
+    List<ToolGroupEntity> findWithAvailableUnits(Sort sort);
+}
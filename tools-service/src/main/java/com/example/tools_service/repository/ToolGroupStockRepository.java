@@ -0,0 +1,33 @@
+package com.example.tools_service.repository;
+
+import com.example.tools_service.entity.ToolGroupStockEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ToolGroupStockRepository extends JpaRepository<ToolGroupStockEntity, Long> {
+
+    // Incremento atómico en base de datos: no hay lectura previa, así que no se pierden
+    // actualizaciones concurrentes. Devuelve 0 si el grupo aún no tiene fila de stock.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ToolGroupStockEntity s SET s.available = s.available + :available, " +
+            "s.loaned = s.loaned + :loaned, s.inRepair = s.inRepair + :inRepair, " +
+            "s.retired = s.retired + :retired WHERE s.toolGroupId = :toolGroupId")
+    int applyDelta(@Param("toolGroupId") Long toolGroupId,
+                   @Param("available") long available,
+                   @Param("loaned") long loaned,
+                   @Param("inRepair") long inRepair,
+                   @Param("retired") long retired);
+
+    // Para la reconciliación: bloquea la fila mientras se recuenta el grupo
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ToolGroupStockEntity s WHERE s.toolGroupId = :toolGroupId")
+    Optional<ToolGroupStockEntity> findForUpdate(@Param("toolGroupId") Long toolGroupId);
+}
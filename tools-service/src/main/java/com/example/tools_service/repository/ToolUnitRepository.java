@@ -1,12 +1,17 @@
 package com.example.tools_service.repository;
 
+import com.example.tools_service.dto.GroupStatusCountDTO;
+import com.example.tools_service.dto.ToolUnitResponseDTO;
 import com.example.tools_service.entity.ToolStatus;
 import com.example.tools_service.entity.ToolUnitEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,9 +24,53 @@ public interface ToolUnitRepository extends JpaRepository<ToolUnitEntity, Long>
     // Para Loan Service: encontrar primera unidad disponible de un grupo
     Optional<ToolUnitEntity> findFirstByToolGroupIdAndStatus(Long toolGroupId, ToolStatus status);
 
+    // Reserva atómica: bloquea la primera unidad disponible saltando las que otra transacción
+    // ya tiene tomadas, así dos préstamos concurrentes nunca reciben la misma unidad
+    @Query(value = "SELECT * FROM tool_units WHERE tool_group_id = :toolGroupId AND status = 'AVAILABLE' " +
+            "ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<ToolUnitEntity> lockFirstAvailable(@Param("toolGroupId") Long toolGroupId);
+
+    // Confirmación de un candidato del pool en memoria: solo si sigue disponible y nadie lo tiene tomado
+    @Query(value = "SELECT * FROM tool_units WHERE id = :id AND tool_group_id = :toolGroupId " +
+            "AND status = 'AVAILABLE' FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<ToolUnitEntity> lockIfAvailable(@Param("id") Long id, @Param("toolGroupId") Long toolGroupId);
+
+    // IDs disponibles (grupo, unidad) para construir el pool en memoria
+    @Query("SELECT u.toolGroup.id, u.id FROM ToolUnitEntity u " +
+            "WHERE u.status = com.example.tools_service.entity.ToolStatus.AVAILABLE ORDER BY u.id")
+    List<Object[]> findAvailableIds();
+
+    @Query("SELECT u.id FROM ToolUnitEntity u WHERE u.toolGroup.id = :toolGroupId " +
+            "AND u.status = com.example.tools_service.entity.ToolStatus.AVAILABLE ORDER BY u.id")
+    List<Long> findAvailableIdsByGroup(@Param("toolGroupId") Long toolGroupId);
+
     // Contar unidades disponibles de un grupo
     long countByToolGroupIdAndStatus(Long toolGroupId, ToolStatus status);
 
+    // Stock por grupo y estado en una sola consulta, sin cargar las unidades
+    @Query("SELECT new com.example.tools_service.dto.GroupStatusCountDTO(u.toolGroup.id, u.status, COUNT(u)) " +
+            "FROM ToolUnitEntity u WHERE u.toolGroup.id IN :groupIds GROUP BY u.toolGroup.id, u.status")
+    List<GroupStatusCountDTO> countByGroupAndStatus(@Param("groupIds") Collection<Long> groupIds);
+
+    // Misma agregación para todos los grupos (reconciliación del stock)
+    @Query("SELECT new com.example.tools_service.dto.GroupStatusCountDTO(u.toolGroup.id, u.status, COUNT(u)) " +
+            "FROM ToolUnitEntity u GROUP BY u.toolGroup.id, u.status")
+    List<GroupStatusCountDTO> countAllByGroupAndStatus();
+
+    // Inventario paginado: solo las columnas del DTO, sin hidratar entidades. Filtros opcionales (null = todos)
+    String UNIT_FILTER = "FROM ToolUnitEntity u JOIN u.toolGroup g " +
+            "WHERE (:status IS NULL OR u.status = :status) " +
+            "AND (:toolGroupId IS NULL OR g.id = :toolGroupId) " +
+            "AND (:category IS NULL OR g.category = :category)";
+
+    @Query(value = "SELECT new com.example.tools_service.dto.ToolUnitResponseDTO(" +
+            "u.id, g.id, g.name, g.category, u.status, g.tariffId, g.replacementValue) " + UNIT_FILTER,
+            countQuery = "SELECT COUNT(u) " + UNIT_FILTER)
+    Page<ToolUnitResponseDTO> findUnitRows(@Param("status") ToolStatus status,
+                                           @Param("toolGroupId") Long toolGroupId,
+                                           @Param("category") String category,
+                                           Pageable pageable);
+
     // Método para cargar con toolGroup usando JOIN FETCH
     @Query("SELECT u FROM ToolUnitEntity u JOIN FETCH u.toolGroup")
     List<ToolUnitEntity> findAllWithToolGroup();
@@ -29,4 +78,8 @@ public interface ToolUnitRepository extends JpaRepository<ToolUnitEntity, Long>
     // Buscar unidad con su grupo (para respuestas completas)
     @Query("SELECT u FROM ToolUnitEntity u JOIN FETCH u.toolGroup WHERE u.id = :id")
     Optional<ToolUnitEntity> findByIdWithGroup(@Param("id") Long id);
+
+    // Varias unidades con su grupo en una sola consulta (búsqueda en lote)
+    @Query("SELECT u FROM ToolUnitEntity u JOIN FETCH u.toolGroup WHERE u.id IN :ids")
+    List<ToolUnitEntity> findAllByIdWithGroup(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
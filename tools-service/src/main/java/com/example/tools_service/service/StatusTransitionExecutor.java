@@ -0,0 +1,78 @@
+package com.example.tools_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Ejecuta una transición de estado en su propia transacción y la reintenta si otra transacción
+// modificó la misma fila entre la lectura y el flush (@Version). Cada intento vuelve a leer y a
+// validar, así que un reintento puede terminar en un error de negocio si el estado ya cambió.
+// Espera entre intentos: backoff exponencial con jitter completo, para no sincronizar a los perdedores.
+@Component
+@Slf4j
+public class StatusTransitionExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tools.optimistic-retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${tools.optimistic-retry.base-delay-ms:20}")
+    private long baseDelayMs;
+
+    @Value("${tools.optimistic-retry.max-delay-ms:500}")
+    private long maxDelayMs;
+
+    public StatusTransitionExecutor(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void run(String operation, Runnable transition) {
+        execute(operation, () -> {
+            transition.run();
+            return null;
+        });
+    }
+
+    public <T> T execute(String operation, Supplier<T> transition) {
+        // Dentro de una transacción externa no se puede reintentar: el conflicto la deja marcada para rollback
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transition.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> transition.get());
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter("tools.units.optimistic.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("tools.units.optimistic.exhausted", "operation", operation).increment();
+                    log.warn("Conflicto de concurrencia en {} tras {} intentos", operation, attempt);
+                    throw new RuntimeException("La unidad fue modificada por otra operación, intente nuevamente");
+                }
+                meterRegistry.counter("tools.units.optimistic.retries", "operation", operation).increment();
+                log.debug("Conflicto de concurrencia en {} (intento {}), reintentando", operation, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Reintento interrumpido", e);
+        }
+    }
+}
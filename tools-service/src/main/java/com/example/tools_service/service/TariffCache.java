@@ -0,0 +1,111 @@
+package com.example.tools_service.service;
+
+import com.example.tools_service.client.TariffClient;
+import com.example.tools_service.model.TariffModel;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Caché local de tarifas por tariffId. Las tarifas cambian poco: se refrescan en segundo plano
+// y updateTariff la actualiza al momento en esta instancia.
+@Component
+@Slf4j
+public class TariffCache {
+
+    private final LoadingCache<Long, TariffModel> cache;
+
+    public TariffCache(TariffClient tariffClient,
+                       MeterRegistry meterRegistry,
+                       @Value("${tools.tariff-cache.max-size:1000}") long maxSize,
+                       @Value("${tools.tariff-cache.refresh-after-ms:300000}") long refreshAfterMs,
+                       @Value("${tools.tariff-cache.expire-after-ms:1800000}") long expireAfterMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // Pasado este tiempo, la siguiente lectura devuelve el valor actual y recarga en segundo plano
+                .refreshAfterWrite(Duration.ofMillis(refreshAfterMs))
+                // Límite duro de antigüedad si nadie la lee (o si la recarga sigue fallando)
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public TariffModel load(Long tariffId) {
+                        return tariffClient.getTariff(tariffId);
+                    }
+
+                    // Los faltantes de un getAll se piden en una sola llamada al endpoint masivo
+                    @Override
+                    public Map<Long, TariffModel> loadAll(Set<? extends Long> tariffIds) {
+                        return tariffClient.getTariffsByIds(new ArrayList<>(tariffIds)).stream()
+                                .collect(Collectors.toMap(TariffModel::getId, Function.identity(), (a, b) -> a));
+                    }
+                });
+        // cache.gets{result=hit|miss}, cache.load{result=success|failure}, cache.load.duration, cache.evictions
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tariffs");
+    }
+
+    // Lanza la excepción del cliente si la tarifa no está en caché y Tariff Service falla
+    public TariffModel get(Long tariffId) {
+        return cache.get(tariffId);
+    }
+
+    // Resuelve varias tarifas con a lo sumo una llamada a Tariff Service, todas o ninguna:
+    // lanza si Tariff Service falla o falta alguna. Es la que usan las reservas, donde una
+    // tarifa en cero terminaría en préstamos sin costo ni multa.
+    public Map<Long, TariffModel> getAll(Collection<Long> tariffIds) {
+        Map<Long, TariffModel> result;
+        try {
+            result = cache.getAll(tariffIds.stream().filter(Objects::nonNull).collect(Collectors.toSet()));
+        } catch (Exception e) {
+            log.error("Error obteniendo tarifas {} de Tariff Service: {}", tariffIds, e.getMessage());
+            throw new RuntimeException("Error al obtener tarifas: " + e.getMessage());
+        }
+        Set<Long> missing = tariffIds.stream()
+                .filter(tariffId -> !result.containsKey(tariffId))
+                .collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Tarifas no encontradas: " + missing);
+        }
+        return result;
+    }
+
+    // Como getAll, pero las que no existan o no se puedan obtener se devuelven con valores en cero.
+    // Solo para listados de lectura: nunca para algo que se cobre.
+    public Map<Long, TariffModel> getAllOrDefault(Collection<Long> tariffIds) {
+        Map<Long, TariffModel> result = new HashMap<>();
+        try {
+            result.putAll(cache.getAll(tariffIds.stream().filter(Objects::nonNull).collect(Collectors.toSet())));
+        } catch (Exception e) {
+            log.error("Error obteniendo tarifas {} de Tariff Service: {}", tariffIds, e.getMessage());
+        }
+        for (Long tariffId : tariffIds) {
+            result.computeIfAbsent(tariffId, id -> new TariffModel(id, 0.0, 0.0));
+        }
+        return result;
+    }
+
+    public void put(TariffModel tariff) {
+        if (tariff != null && tariff.getId() != null) {
+            cache.put(tariff.getId(), tariff);
+        }
+    }
+
+    public void invalidate(Long tariffId) {
+        cache.invalidate(tariffId);
+        log.debug("Tarifa {} invalidada en caché", tariffId);
+    }
+}
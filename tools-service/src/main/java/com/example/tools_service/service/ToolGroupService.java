@@ -2,6 +2,7 @@ package com.example.tools_service.service;
 
 import com.example.tools_service.client.KardexClient;
 import com.example.tools_service.client.TariffClient;
+import com.example.tools_service.dto.ToolGroupPageDTO;
 import com.example.tools_service.dto.ToolGroupRequestDTO;
 import com.example.tools_service.dto.ToolGroupResponseDTO;
 import com.example.tools_service.entity.ToolGroupEntity;
@@ -12,10 +13,17 @@ import com.example.tools_service.repository.ToolGroupRepository;
 import com.example.tools_service.repository.ToolUnitRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,8 +34,19 @@ public class ToolGroupService {
     private final ToolGroupRepository toolGroupRepository;
     private final ToolUnitRepository toolUnitRepository;
     private final TariffClient tariffClient;
+    private final TariffCache tariffCache;
+    private final ToolGroupStockService toolGroupStockService;
+    private final ToolUnitBulkWriter toolUnitBulkWriter;
+    private final UnitAvailabilityPool unitAvailabilityPool;
+    private final StatusTransitionExecutor statusTransitionExecutor;
     private final KardexClient kardexClient; // NUEVO: Kardex Client
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "category", "replacementValue");
+
+    @Value("${tools.units.max-per-request:10000}")
+    private int maxUnitsPerRequest;
+
     @Transactional
     public ToolGroupResponseDTO createToolGroup(ToolGroupRequestDTO request, String userName) {
         log.info("Creando grupo de herramientas: {}", request.getName());
@@ -45,6 +64,7 @@ public class ToolGroupService {
                     request.getDailyFineRate()
             );
             log.info("Tarifa creada en Tariff Service: ID {}", tariff.getId());
+            tariffCache.put(tariff);
         } catch (Exception e) {
             log.error("Error creando tarifa en Tariff Service", e);
             throw new RuntimeException("Error al crear tarifa: " + e.getMessage());
@@ -57,18 +77,16 @@ public class ToolGroupService {
         group.setReplacementValue(request.getReplacementValue());
         group.setTariffId(tariff.getId());
 
-        // 4. Crear unidades iniciales
-        for (int i = 0; i < request.getInitialStock(); i++) {
-            ToolUnitEntity unit = new ToolUnitEntity();
-            unit.setToolGroup(group);
-            unit.setStatus(ToolStatus.AVAILABLE);
-            group.getUnits().add(unit);
-        }
-
-        // 5. Guardar el grupo (esto guarda también las unidades por cascade)
+        // 4. Guardar el grupo
         ToolGroupEntity saved = toolGroupRepository.save(group);
+
+        // 5. Crear unidades iniciales con INSERT en lote
+        int initialStock = request.getInitialStock();
+        toolUnitBulkWriter.insertAvailableUnits(saved.getId(), initialStock);
+        toolGroupStockService.recordCreated(saved.getId(), initialStock);
+        unitAvailabilityPool.reloadGroupAfterCommit(saved.getId());
         log.info("Grupo de herramientas creado: ID {}, Unidades: {}",
-                saved.getId(), saved.getUnits().size());
+                saved.getId(), initialStock);
 
 
         // ===== REGISTRAR EN KARDEX: CREACIÓN DE HERRAMIENTAS =====
@@ -77,10 +95,10 @@ public class ToolGroupService {
             kardexClient.registerToolsBatchCreation(
                     saved.getId(),
                     saved.getName(),
-                    saved.getUnits().size(),
+                    initialStock,
                     userName != null ? userName : "Usuario"
             );
-            log.info("Kardex: Tool group {} created with {} units", saved.getId(), saved.getUnits().size());
+            log.info("Kardex: Tool group {} created with {} units", saved.getId(), initialStock);
 
         } catch (Exception e) {
             log.error("Error registering tool group creation in kardex: {}", e.getMessage(), e);
@@ -89,6 +107,36 @@ public class ToolGroupService {
         return mapToDTO(saved, tariff);
     }
 
+    // Reposición de stock: agrega N unidades AVAILABLE a un grupo existente
+    @Transactional
+    public ToolGroupResponseDTO addUnits(Long groupId, int quantity, String userName) {
+        if (quantity <= 0 || quantity > maxUnitsPerRequest) {
+            throw new RuntimeException("La cantidad debe estar entre 1 y " + maxUnitsPerRequest);
+        }
+
+        ToolGroupEntity group = toolGroupRepository.findById(groupId)
+                .orElseThrow(() -> new RuntimeException("Grupo de herramientas no encontrado"));
+
+        toolUnitBulkWriter.insertAvailableUnits(groupId, quantity);
+        toolGroupStockService.recordCreated(groupId, quantity);
+        unitAvailabilityPool.reloadGroupAfterCommit(groupId);
+        log.info("Grupo {}: {} unidades agregadas", groupId, quantity);
+
+        try {
+            kardexClient.registerToolsBatchCreation(
+                    groupId,
+                    group.getName(),
+                    quantity,
+                    userName != null ? userName : "Usuario"
+            );
+        } catch (Exception e) {
+            log.error("Error registering restock in kardex: {}", e.getMessage(), e);
+        }
+
+        TariffModel tariff = getTariffFromService(group.getTariffId());
+        return mapToDTO(group, tariff);
+    }
+
     public ToolGroupResponseDTO getToolGroup(Long id) {
         ToolGroupEntity group = toolGroupRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Grupo de herramientas no encontrado"));
@@ -98,23 +146,29 @@ public class ToolGroupService {
     }
 
     public List<ToolGroupResponseDTO> getAllToolGroups() {
-        return toolGroupRepository.findAll().stream()
-                .map(group -> {
-                    TariffModel tariff = getTariffFromService(group.getTariffId());
-                    return mapToDTO(group, tariff);
-                })
-                .collect(Collectors.toList());
+        return mapToDTOs(toolGroupRepository.findAll());
     }
 
     public List<ToolGroupResponseDTO> getAvailableToolGroups() {
-        return toolGroupRepository.findAll().stream()
-                .filter(group -> group.getUnits().stream()
-                        .anyMatch(unit -> unit.getStatus() == ToolStatus.AVAILABLE))
-                .map(group -> {
-                    TariffModel tariff = getTariffFromService(group.getTariffId());
-                    return mapToDTO(group, tariff);
-                })
-                .collect(Collectors.toList());
+        return mapToDTOs(toolGroupRepository.findWithAvailableUnits(Sort.by("name")));
+    }
+
+    public ToolGroupPageDTO getAvailableToolGroupsPage(int page, int size, String sortBy, String direction) {
+        if (!SORTABLE_FIELDS.contains(sortBy)) {
+            throw new RuntimeException("Campo de orden no permitido: " + sortBy);
+        }
+        Sort sort = Sort.by(Sort.Direction.fromOptionalString(direction).orElse(Sort.Direction.ASC), sortBy)
+                .and(Sort.by("id"));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+
+        Page<ToolGroupEntity> groups = toolGroupRepository.findWithAvailableUnits(pageable);
+        return new ToolGroupPageDTO(
+                mapToDTOs(groups.getContent()),
+                groups.getNumber(),
+                groups.getSize(),
+                groups.getTotalElements(),
+                groups.getTotalPages()
+        );
     }
 
     @Transactional
@@ -129,8 +183,11 @@ public class ToolGroupService {
                     dailyFineRate
             );
             log.info("Tarifa actualizada en Tariff Service: ID {}", tariff.getId());
+            tariffCache.put(tariff);
             return mapToDTO(group, tariff);
         } catch (Exception e) {
+            // Si no sabemos si se aplicó, mejor volver a leerla de Tariff Service
+            tariffCache.invalidate(group.getTariffId());
             log.error("Error actualizando tarifa en Tariff Service", e);
             throw new RuntimeException("Error al actualizar tarifa: " + e.getMessage());
         }
@@ -234,14 +291,19 @@ public class ToolGroupService {
     /**
      * Retirar herramienta (baja definitiva)
      */
-    @Transactional
     public void retireTool(Long unitId, String reason, Long customerId) {
+        statusTransitionExecutor.run("retire", () -> applyRetirement(unitId, reason, customerId));
+    }
+
+    private void applyRetirement(Long unitId, String reason, Long customerId) {
         ToolUnitEntity unit = toolUnitRepository.findById(unitId)
                 .orElseThrow(() -> new RuntimeException("Unidad no encontrada"));
 
         // Cambiar estado a RETIRED
+        ToolStatus oldStatus = unit.getStatus();
         unit.setStatus(ToolStatus.RETIRED);
-        toolUnitRepository.save(unit);
+        toolUnitRepository.saveAndFlush(unit);
+        toolGroupStockService.recordTransition(unit.getToolGroup().getId(), oldStatus, ToolStatus.RETIRED);
         log.info("Unidad {} retirada: {}", unitId, reason);
 
         // Registrar en Kardex
@@ -260,12 +322,30 @@ public class ToolGroupService {
 
     // ========== MÉTODOS PRIVADOS ==========
 
+    private List<ToolGroupResponseDTO> mapToDTOs(List<ToolGroupEntity> groups) {
+        return mapToDTOs(groups, countUnitsByStatus(groups));
+    }
+
+    // Todas las tarifas y todo el stock de la lista en una consulta cada uno, no uno por grupo
+    private List<ToolGroupResponseDTO> mapToDTOs(List<ToolGroupEntity> groups, Map<Long, Map<ToolStatus, Long>> stock) {
+        Map<Long, TariffModel> tariffs = tariffCache.getAllOrDefault(groups.stream()
+                .map(ToolGroupEntity::getTariffId)
+                .collect(Collectors.toSet()));
+        return groups.stream()
+                .map(group -> mapToDTO(group, tariffs.get(group.getTariffId()),
+                        stock.getOrDefault(group.getId(), Map.of())))
+                .collect(Collectors.toList());
+    }
+
     private ToolGroupResponseDTO mapToDTO(ToolGroupEntity entity, TariffModel tariff) {
-        long availableCount = entity.getUnits().stream()
-                .filter(unit -> unit.getStatus() == ToolStatus.AVAILABLE)
-                .count();
+        Map<ToolStatus, Long> counts = countUnitsByStatus(List.of(entity)).getOrDefault(entity.getId(), Map.of());
+        return mapToDTO(entity, tariff, counts);
+    }
+
+    private ToolGroupResponseDTO mapToDTO(ToolGroupEntity entity, TariffModel tariff, Map<ToolStatus, Long> counts) {
+        long availableCount = counts.getOrDefault(ToolStatus.AVAILABLE, 0L);
+        long totalUnits = counts.values().stream().mapToLong(Long::longValue).sum();
 
-        // Corregir: usar el constructor completo con totalUnits
         return new ToolGroupResponseDTO(
                 entity.getId(),
                 entity.getName(),
@@ -275,13 +355,20 @@ public class ToolGroupService {
                 tariff.getDailyRentalRate(),
                 tariff.getDailyFineRate(),
                 availableCount,
-                (long) entity.getUnits().size() // Total de unidades
+                totalUnits
         );
     }
 
+    // groupId -> (estado -> cantidad), desde la tabla de stock en vez de recorrer entity.getUnits()
+    private Map<Long, Map<ToolStatus, Long>> countUnitsByStatus(List<ToolGroupEntity> groups) {
+        return toolGroupStockService.getStock(groups.stream()
+                .map(ToolGroupEntity::getId)
+                .collect(Collectors.toList()));
+    }
+
     private TariffModel getTariffFromService(Long tariffId) {
         try {
-            return tariffClient.getTariff(tariffId);
+            return tariffCache.get(tariffId);
         } catch (Exception e) {
             log.error("Error obteniendo tarifa {} de Tariff Service", tariffId, e);
             // Retornar tarifa por defecto para no romper el servicio
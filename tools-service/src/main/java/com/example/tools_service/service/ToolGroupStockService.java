@@ -0,0 +1,195 @@
+package com.example.tools_service.service;
+
+import com.example.tools_service.dto.GroupStatusCountDTO;
+import com.example.tools_service.entity.ToolGroupStockEntity;
+import com.example.tools_service.entity.ToolStatus;
+import com.example.tools_service.repository.ToolGroupRepository;
+import com.example.tools_service.repository.ToolGroupStockRepository;
+import com.example.tools_service.repository.ToolUnitRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Stock por grupo en la tabla tool_group_stock: lecturas O(1) en vez de contar tool_units.
+// Cada cambio de estado aplica su delta en la misma transacción; un job periódico corrige desvíos.
+@Service
+@Slf4j
+public class ToolGroupStockService {
+
+    private final ToolGroupStockRepository stockRepository;
+    private final ToolUnitRepository toolUnitRepository;
+    private final ToolGroupRepository toolGroupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter driftCounter;
+
+    public ToolGroupStockService(ToolGroupStockRepository stockRepository,
+                                 ToolUnitRepository toolUnitRepository,
+                                 ToolGroupRepository toolGroupRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.stockRepository = stockRepository;
+        this.toolUnitRepository = toolUnitRepository;
+        this.toolGroupRepository = toolGroupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.driftCounter = meterRegistry.counter("tools.stock.drift");
+    }
+
+    // Una unidad del grupo pasa de un estado a otro
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransition(Long toolGroupId, ToolStatus from, ToolStatus to) {
+        if (from == to) {
+            return;
+        }
+        Map<ToolStatus, Long> delta = new EnumMap<>(ToolStatus.class);
+        addTransition(delta, from, to);
+        applyDelta(toolGroupId, delta);
+    }
+
+    // Cambio masivo: un solo UPDATE por grupo con el delta acumulado (ver addTransition)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransitions(Map<Long, Map<ToolStatus, Long>> deltasByGroup) {
+        deltasByGroup.forEach(this::applyDelta);
+    }
+
+    public static void addTransition(Map<ToolStatus, Long> delta, ToolStatus from, ToolStatus to) {
+        delta.merge(from, -1L, Long::sum);
+        delta.merge(to, 1L, Long::sum);
+    }
+
+    // Se agregaron unidades nuevas (AVAILABLE) al grupo
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Long toolGroupId, long quantity) {
+        int updated = stockRepository.applyDelta(toolGroupId, quantity, 0, 0, 0);
+        if (updated == 0) {
+            // Grupo nuevo: se inicializa desde las unidades ya guardadas en esta transacción
+            stockRepository.save(toEntity(toolGroupId, countGroup(toolGroupId)));
+        }
+    }
+
+    public long getAvailable(Long toolGroupId) {
+        return stockRepository.findById(toolGroupId)
+                .map(ToolGroupStockEntity::getAvailable)
+                .orElseGet(() -> toolUnitRepository.countByToolGroupIdAndStatus(toolGroupId, ToolStatus.AVAILABLE));
+    }
+
+    // groupId -> (estado -> cantidad); los grupos sin fila de stock se cuentan con la agregación
+    public Map<Long, Map<ToolStatus, Long>> getStock(Collection<Long> toolGroupIds) {
+        Map<Long, Map<ToolStatus, Long>> stock = new HashMap<>();
+        if (toolGroupIds.isEmpty()) {
+            return stock;
+        }
+        for (ToolGroupStockEntity row : stockRepository.findAllById(toolGroupIds)) {
+            stock.put(row.getToolGroupId(), toCounts(row));
+        }
+
+        List<Long> missing = toolGroupIds.stream()
+                .filter(id -> !stock.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            stock.putAll(groupCounts(toolUnitRepository.countByGroupAndStatus(missing)));
+        }
+        return stock;
+    }
+
+    @Scheduled(initialDelayString = "${tools.stock.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${tools.stock.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        Map<Long, Map<ToolStatus, Long>> actual = groupCounts(toolUnitRepository.countAllByGroupAndStatus());
+        Map<Long, ToolGroupStockEntity> stored = stockRepository.findAll().stream()
+                .collect(Collectors.toMap(ToolGroupStockEntity::getToolGroupId, Function.identity()));
+
+        // Primera pasada sin bloqueos; los candidatos se vuelven a verificar con la fila bloqueada
+        List<Long> candidates = new ArrayList<>();
+        for (Long toolGroupId : toolGroupRepository.findAllIds()) {
+            ToolGroupStockEntity expected = toEntity(toolGroupId, actual.getOrDefault(toolGroupId, Map.of()));
+            if (!expected.equals(stored.get(toolGroupId))) {
+                candidates.add(toolGroupId);
+            }
+        }
+
+        int repaired = 0;
+        for (Long toolGroupId : candidates) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> repair(toolGroupId)))) {
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            log.warn("Reconciliación de stock: {} grupos corregidos", repaired);
+        }
+    }
+
+    private boolean repair(Long toolGroupId) {
+        // El bloqueo va antes del recuento: los cambios en curso o ya se ven en el recuento
+        // o aplican su delta después, sobre el valor corregido
+        Optional<ToolGroupStockEntity> current = stockRepository.findForUpdate(toolGroupId);
+        ToolGroupStockEntity expected = toEntity(toolGroupId, countGroup(toolGroupId));
+        if (current.isPresent() && current.get().equals(expected)) {
+            return false;
+        }
+
+        log.warn("Stock del grupo {} desviado: {} -> {}", toolGroupId, current.orElse(null), expected);
+        stockRepository.save(expected);
+        driftCounter.increment();
+        return true;
+    }
+
+    private void applyDelta(Long toolGroupId, Map<ToolStatus, Long> delta) {
+        int updated = stockRepository.applyDelta(toolGroupId,
+                delta.getOrDefault(ToolStatus.AVAILABLE, 0L),
+                delta.getOrDefault(ToolStatus.LOANED, 0L),
+                delta.getOrDefault(ToolStatus.IN_REPAIR, 0L),
+                delta.getOrDefault(ToolStatus.RETIRED, 0L));
+        if (updated == 0) {
+            // Grupo anterior a la tabla de stock: la reconciliación le creará la fila
+            log.debug("Grupo {} sin fila de stock, se omite el delta {}", toolGroupId, delta);
+        }
+    }
+
+    private Map<ToolStatus, Long> countGroup(Long toolGroupId) {
+        return groupCounts(toolUnitRepository.countByGroupAndStatus(List.of(toolGroupId)))
+                .getOrDefault(toolGroupId, Map.of());
+    }
+
+    private static Map<Long, Map<ToolStatus, Long>> groupCounts(List<GroupStatusCountDTO> rows) {
+        Map<Long, Map<ToolStatus, Long>> counts = new HashMap<>();
+        for (GroupStatusCountDTO row : rows) {
+            counts.computeIfAbsent(row.getToolGroupId(), id -> new EnumMap<>(ToolStatus.class))
+                    .put(row.getStatus(), row.getCount());
+        }
+        return counts;
+    }
+
+    private static ToolGroupStockEntity toEntity(Long toolGroupId, Map<ToolStatus, Long> counts) {
+        return new ToolGroupStockEntity(
+                toolGroupId,
+                counts.getOrDefault(ToolStatus.AVAILABLE, 0L),
+                counts.getOrDefault(ToolStatus.LOANED, 0L),
+                counts.getOrDefault(ToolStatus.IN_REPAIR, 0L),
+                counts.getOrDefault(ToolStatus.RETIRED, 0L)
+        );
+    }
+
+    private static Map<ToolStatus, Long> toCounts(ToolGroupStockEntity row) {
+        Map<ToolStatus, Long> counts = new EnumMap<>(ToolStatus.class);
+        counts.put(ToolStatus.AVAILABLE, row.getAvailable());
+        counts.put(ToolStatus.LOANED, row.getLoaned());
+        counts.put(ToolStatus.IN_REPAIR, row.getInRepair());
+        counts.put(ToolStatus.RETIRED, row.getRetired());
+        return counts;
+    }
+}
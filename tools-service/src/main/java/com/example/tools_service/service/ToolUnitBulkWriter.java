@@ -0,0 +1,41 @@
+package com.example.tools_service.service;
+
+import com.example.tools_service.entity.ToolGroupEntity;
+import com.example.tools_service.entity.ToolStatus;
+import com.example.tools_service.entity.ToolUnitEntity;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Alta masiva de unidades: los INSERT salen en lotes JDBC (hibernate.jdbc.batch_size) y el
+// contexto de persistencia se vacía por bloques para que la memoria no crezca con la cantidad.
+@Component
+@RequiredArgsConstructor
+public class ToolUnitBulkWriter {
+
+    private final EntityManager entityManager;
+
+    @Value("${tools.units.insert-chunk-size:500}")
+    private int chunkSize;
+
+    // Ojo: hace clear() del contexto de persistencia; las entidades cargadas antes quedan desconectadas
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void insertAvailableUnits(Long toolGroupId, int quantity) {
+        for (int i = 1; i <= quantity; i++) {
+            ToolUnitEntity unit = new ToolUnitEntity();
+            unit.setToolGroup(entityManager.getReference(ToolGroupEntity.class, toolGroupId));
+            unit.setStatus(ToolStatus.AVAILABLE);
+            entityManager.persist(unit);
+
+            if (i % chunkSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -1,20 +1,40 @@
 package com.example.tools_service.service;
 
 import com.example.tools_service.client.KardexClient;
-import com.example.tools_service.client.TariffClient;
+import com.example.tools_service.dto.ToolUnitPageDTO;
 import com.example.tools_service.dto.ToolUnitResponseDTO;
+import com.example.tools_service.dto.UnitStatusChangeRequestDTO;
+import com.example.tools_service.dto.UnitStatusChangeResultDTO;
 import com.example.tools_service.entity.ToolStatus;
 import com.example.tools_service.entity.ToolUnitEntity;
 import com.example.tools_service.entity.ToolGroupEntity; // Import necesario
+import com.example.tools_service.model.KardexRequest;
 import com.example.tools_service.model.TariffModel;
 import com.example.tools_service.model.ToolUnitModel;
+import com.example.tools_service.repository.ToolGroupRepository;
 import com.example.tools_service.repository.ToolUnitRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,21 +43,108 @@ import java.util.stream.Collectors;
 public class ToolUnitService {
 
     private final ToolUnitRepository toolUnitRepository;
-    private final TariffClient tariffClient;
+    private final ToolGroupRepository toolGroupRepository;
+    private final TariffCache tariffCache;
     private final KardexClient kardexClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ToolGroupStockService toolGroupStockService;
+    private final UnitAvailabilityPool unitAvailabilityPool;
+    private final StatusTransitionExecutor statusTransitionExecutor;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Value("${tools.units.max-per-request:10000}")
+    private int maxUnitsPerRequest;
 
 
     public ToolUnitModel getAvailableUnit(Long toolGroupId) {
         log.info("Buscando unidad disponible para grupo: {}", toolGroupId);
 
-        ToolUnitEntity unit = toolUnitRepository
-                .findFirstByToolGroupIdAndStatus(toolGroupId, ToolStatus.AVAILABLE)
-                .orElseThrow(() -> new RuntimeException("No hay unidades disponibles para este grupo"));
+        // Candidato del pool confirmado por id (clave primaria); si no sirve se descarta y se consulta por grupo
+        Long candidate = unitAvailabilityPool.peek(toolGroupId);
+        ToolUnitEntity unit = Optional.ofNullable(candidate)
+                .flatMap(toolUnitRepository::findById)
+                .filter(found -> found.getStatus() == ToolStatus.AVAILABLE)
+                .orElse(null);
+        if (unit != null) {
+            unitAvailabilityPool.recordHit();
+        } else {
+            if (candidate != null) {
+                unitAvailabilityPool.discard(toolGroupId, candidate);
+            }
+            unitAvailabilityPool.recordFallback(candidate == null);
+            unit = toolUnitRepository
+                    .findFirstByToolGroupIdAndStatus(toolGroupId, ToolStatus.AVAILABLE)
+                    .orElseThrow(() -> new RuntimeException("No hay unidades disponibles para este grupo"));
+        }
 
         TariffModel tariff = getTariffFromService(unit.getToolGroup().getTariffId());
         return mapToModel(unit, tariff);
     }
 
+    // Elige y marca como LOANED una unidad disponible (una llamada para Loan Service).
+    // La tarifa se resuelve antes de reservar: si Tariff Service falla no queda ninguna unidad
+    // marcada como LOANED sin préstamo, y el bloqueo de la fila no espera a la llamada remota.
+    public ToolUnitModel reserveAvailableUnit(Long toolGroupId, String userName) {
+        Long tariffId = toolGroupRepository.findTariffIdById(toolGroupId)
+                .orElseThrow(() -> new RuntimeException("Grupo de herramientas no encontrado"));
+        TariffModel tariff = getTariffFromService(tariffId);
+
+        ToolUnitEntity unit = transactionTemplate.execute(status -> {
+            ToolUnitEntity locked = lockAvailableUnit(toolGroupId)
+                    .orElseThrow(() -> new RuntimeException("No hay unidades disponibles para este grupo"));
+            locked.setStatus(ToolStatus.LOANED);
+            toolUnitRepository.save(locked);
+            toolGroupStockService.recordTransition(toolGroupId, ToolStatus.AVAILABLE, ToolStatus.LOANED);
+            Hibernate.initialize(locked.getToolGroup());
+            return locked;
+        });
+        log.info("Unidad {} reservada para préstamo por {}", unit.getId(), userName);
+
+        return mapToModel(unit, tariff);
+    }
+
+    // Reserva una unidad por grupo en una sola transacción: si algún grupo no tiene stock,
+    // no queda ninguna reservada. La respuesta respeta el orden de los grupos pedidos.
+    // Igual que en la reserva individual, las tarifas se resuelven antes y sin valores por
+    // defecto: si falta alguna no se reserva nada y Loan Service revierte el préstamo.
+    public List<ToolUnitModel> reserveAvailableUnits(List<Long> toolGroupIds, String userName) {
+        if (toolGroupIds == null || toolGroupIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Long> tariffIdByGroup = new HashMap<>();
+        for (ToolGroupEntity group : toolGroupRepository.findAllById(new HashSet<>(toolGroupIds))) {
+            tariffIdByGroup.put(group.getId(), group.getTariffId());
+        }
+        for (Long toolGroupId : toolGroupIds) {
+            if (!tariffIdByGroup.containsKey(toolGroupId)) {
+                throw new RuntimeException("Grupo de herramientas no encontrado: " + toolGroupId);
+            }
+        }
+        Map<Long, TariffModel> tariffs = tariffCache.getAll(new HashSet<>(tariffIdByGroup.values()));
+
+        List<ToolUnitEntity> units = transactionTemplate.execute(status -> {
+            List<ToolUnitEntity> locked = new ArrayList<>();
+            for (Long toolGroupId : toolGroupIds) {
+                ToolUnitEntity unit = lockAvailableUnit(toolGroupId)
+                        .orElseThrow(() -> new RuntimeException(
+                                "No hay unidades disponibles para el grupo: " + toolGroupId));
+                unit.setStatus(ToolStatus.LOANED);
+                Hibernate.initialize(unit.getToolGroup());
+                toolGroupStockService.recordTransition(toolGroupId, ToolStatus.AVAILABLE, ToolStatus.LOANED);
+                locked.add(unit);
+            }
+            toolUnitRepository.saveAll(locked);
+            return locked;
+        });
+        log.info("{} unidades reservadas para préstamo por {}", units.size(), userName);
+
+        return units.stream()
+                .map(unit -> mapToModel(unit, tariffs.get(unit.getToolGroup().getTariffId())))
+                .collect(Collectors.toList());
+    }
+
     public ToolUnitModel getToolUnit(Long unitId) {
         log.info("Obteniendo información de unidad: {}", unitId);
 
@@ -54,7 +161,7 @@ public class ToolUnitService {
             // Obtener tarifa
             TariffModel tariff;
             try {
-                tariff = tariffClient.getTariff(unit.getToolGroup().getTariffId());
+                tariff = tariffCache.get(unit.getToolGroup().getTariffId());
                 log.debug("Tarifa obtenida para unidad {}: {}", unitId, tariff);
             } catch (Exception e) {
                 log.error("Error obteniendo tarifa {}: {}", unit.getToolGroup().getTariffId(), e.getMessage());
@@ -72,7 +179,7 @@ public class ToolUnitService {
 
     // ===== MÉTODO PRINCIPAL: changeStatus con Kardex =====
     // ===== MÉTODO: cambio de estado + kardex =====
-    @Transactional
+    // Transacción propia por intento; ante conflicto de versión se reintenta con el estado fresco
     public void updateStatus(Long unitId, String status, String userName) {
         ToolStatus newStatus;
         try {
@@ -81,6 +188,10 @@ public class ToolUnitService {
             throw new RuntimeException("Estado inválido: " + status);
         }
 
+        statusTransitionExecutor.run("update_status", () -> applyStatus(unitId, newStatus, userName));
+    }
+
+    private void applyStatus(Long unitId, ToolStatus newStatus, String userName) {
         ToolUnitEntity unit = toolUnitRepository.findByIdWithGroup(unitId)
                 .orElseThrow(() -> new RuntimeException("Unidad no encontrada"));
 
@@ -93,7 +204,12 @@ public class ToolUnitService {
 
         ToolStatus oldStatus = unit.getStatus();
         unit.setStatus(newStatus);
-        toolUnitRepository.save(unit);
+        // Flush antes de Kardex: el conflicto de versión aparece aquí y no tras registrar el movimiento
+        toolUnitRepository.saveAndFlush(unit);
+        toolGroupStockService.recordTransition(unit.getToolGroup().getId(), oldStatus, newStatus);
+        if (newStatus == ToolStatus.AVAILABLE) {
+            unitAvailabilityPool.offerAfterCommit(unit.getToolGroup().getId(), unitId);
+        }
         log.info("Unidad {} cambió de {} a {}", unitId, oldStatus, newStatus);
 
         // >>> KARDEX – según el nuevo estado
@@ -114,6 +230,83 @@ public class ToolUnitService {
         }
     }
 
+    // Cambio de estado masivo: una consulta para cargar las unidades, UPDATE en lote JDBC,
+    // un UPDATE de stock por grupo y una sola llamada a Kardex. Los ítems inválidos se informan
+    // uno a uno sin afectar al resto; si falla la escritura o Kardex, no se aplica ninguno.
+    // Un conflicto de versión en cualquier unidad reintenta el lote completo.
+    public List<UnitStatusChangeResultDTO> updateStatuses(List<UnitStatusChangeRequestDTO> changes, String userName) {
+        if (changes == null || changes.isEmpty()) {
+            return List.of();
+        }
+        if (changes.size() > maxUnitsPerRequest) {
+            throw new RuntimeException("Máximo " + maxUnitsPerRequest + " unidades por solicitud");
+        }
+        return statusTransitionExecutor.execute("bulk_update_status", () -> applyStatuses(changes, userName));
+    }
+
+    private List<UnitStatusChangeResultDTO> applyStatuses(List<UnitStatusChangeRequestDTO> changes, String userName) {
+
+        Map<Long, ToolUnitEntity> units = toolUnitRepository.findAllByIdWithGroup(changes.stream()
+                        .map(UnitStatusChangeRequestDTO::getUnitId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(ToolUnitEntity::getId, Function.identity()));
+
+        List<UnitStatusChangeResultDTO> results = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        Map<Long, Map<ToolStatus, Long>> stockDeltas = new HashMap<>();
+        List<KardexRequest> movements = new ArrayList<>();
+
+        for (UnitStatusChangeRequestDTO change : changes) {
+            Long unitId = change.getUnitId();
+            ToolStatus newStatus = parseStatus(change.getStatus());
+            ToolUnitEntity unit = units.get(unitId);
+
+            String error = null;
+            if (newStatus == null) {
+                error = "Estado inválido: " + change.getStatus();
+            } else if (unit == null) {
+                error = "Unidad no encontrada";
+            } else if (!seen.add(unitId)) {
+                error = "Unidad repetida en la solicitud";
+            } else if (unit.getStatus() == ToolStatus.RETIRED) {
+                error = "No se puede cambiar el estado de una unidad retirada";
+            } else if (unit.getStatus() == newStatus) {
+                error = "La unidad ya está en estado: " + newStatus;
+            }
+            if (error != null) {
+                results.add(new UnitStatusChangeResultDTO(unitId, change.getStatus(), false, error));
+                continue;
+            }
+
+            ToolStatus oldStatus = unit.getStatus();
+            Long toolGroupId = unit.getToolGroup().getId();
+            unit.setStatus(newStatus);
+            ToolGroupStockService.addTransition(
+                    stockDeltas.computeIfAbsent(toolGroupId, id -> new EnumMap<>(ToolStatus.class)),
+                    oldStatus, newStatus);
+            if (newStatus == ToolStatus.AVAILABLE) {
+                unitAvailabilityPool.offerAfterCommit(toolGroupId, unitId);
+            }
+            KardexRequest movement = toKardexMovement(unit, newStatus, userName);
+            if (movement != null) {
+                movements.add(movement);
+            }
+            results.add(new UnitStatusChangeResultDTO(unitId, newStatus.name(), true, null));
+        }
+
+        // Las entidades modificadas se escriben en el flush con UPDATE en lote (hibernate.jdbc.batch_size)
+        toolUnitRepository.flush();
+        toolGroupStockService.recordTransitions(stockDeltas);
+        if (!movements.isEmpty()) {
+            kardexClient.registerMovements(movements);
+        }
+        log.info("Cambio de estado masivo: {} de {} unidades actualizadas, {} movimientos de Kardex",
+                results.stream().filter(UnitStatusChangeResultDTO::isSuccess).count(), changes.size(), movements.size());
+        return results;
+    }
+
     public ToolUnitResponseDTO getUnitDetails(Long unitId) {
         ToolUnitEntity unit = toolUnitRepository.findByIdWithGroup(unitId)
                 .orElseThrow(() -> new RuntimeException("Unidad no encontrada"));
@@ -138,8 +331,12 @@ public class ToolUnitService {
         List<ToolUnitEntity> units = toolUnitRepository.findAllWithToolGroup();
         log.info("Total units with groups found: {}", units.size());
 
+        Map<Long, TariffModel> tariffs = tariffCache.getAllOrDefault(units.stream()
+                .map(unit -> unit.getToolGroup().getTariffId())
+                .collect(Collectors.toSet()));
+
         return units.stream().map(unit -> {
-            TariffModel tariff = getTariffFromService(unit.getToolGroup().getTariffId());
+            TariffModel tariff = tariffs.get(unit.getToolGroup().getTariffId());
 
             log.debug("Processing unit {}: toolGroupName = {}",
                     unit.getId(), unit.getToolGroup().getName());
@@ -158,8 +355,61 @@ public class ToolUnitService {
         }).collect(Collectors.toList());
     }
 
+    // Inventario paginado y filtrable: proyección por columnas y una sola resolución de tarifas por página
+    public ToolUnitPageDTO getUnitsPage(int page, int size, String status, Long toolGroupId, String category) {
+        ToolStatus statusFilter = null;
+        if (status != null && !status.isBlank()) {
+            statusFilter = parseStatus(status);
+            if (statusFilter == null) {
+                throw new RuntimeException("Estado inválido: " + status);
+            }
+        }
+        String categoryFilter = category != null && !category.isBlank() ? category : null;
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by("id"));
+
+        Page<ToolUnitResponseDTO> rows = toolUnitRepository.findUnitRows(statusFilter, toolGroupId, categoryFilter, pageable);
+
+        Map<Long, TariffModel> tariffs = tariffCache.getAllOrDefault(rows.getContent().stream()
+                .map(ToolUnitResponseDTO::getTariffId)
+                .collect(Collectors.toSet()));
+        for (ToolUnitResponseDTO row : rows.getContent()) {
+            TariffModel tariff = tariffs.get(row.getTariffId());
+            if (tariff == null) {
+                continue;
+            }
+            row.setDailyRentalRate(tariff.getDailyRentalRate());
+            row.setDailyFineRate(tariff.getDailyFineRate());
+        }
+
+        return new ToolUnitPageDTO(
+                rows.getContent(),
+                rows.getNumber(),
+                rows.getSize(),
+                rows.getTotalElements(),
+                rows.getTotalPages()
+        );
+    }
+
+    public List<ToolUnitResponseDTO> getUnitsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<ToolUnitEntity> units = toolUnitRepository.findAllByIdWithGroup(ids);
+
+        // Una sola consulta para todas las tarifas distintas, no una por unidad
+        Map<Long, TariffModel> tariffs = tariffCache.getAllOrDefault(units.stream()
+                .map(unit -> unit.getToolGroup().getTariffId())
+                .collect(Collectors.toSet()));
+
+        return units.stream()
+                .map(unit -> mapToResponseDTO(unit, tariffs.get(unit.getToolGroup().getTariffId())))
+                .collect(Collectors.toList());
+    }
+
     public long getAvailableStock(Long toolGroupId) {
-        return toolUnitRepository.countByToolGroupIdAndStatus(toolGroupId, ToolStatus.AVAILABLE);
+        return toolGroupStockService.getAvailable(toolGroupId);
     }
 
     private void registerKardexMovement(ToolUnitEntity unit, ToolStatus oldStatus, ToolStatus newStatus) {
@@ -218,8 +468,11 @@ public class ToolUnitService {
     }
 
 
-    @Transactional
     public ToolUnitEntity repairResolution(Long unitId, boolean retire, String userName) {
+        return statusTransitionExecutor.execute("repair_resolution", () -> applyRepairResolution(unitId, retire, userName));
+    }
+
+    private ToolUnitEntity applyRepairResolution(Long unitId, boolean retire, String userName) {
         ToolUnitEntity unit = toolUnitRepository.findById(unitId)
                 .orElseThrow(() -> new RuntimeException("Unidad no encontrada"));
 
@@ -227,21 +480,70 @@ public class ToolUnitService {
             throw new RuntimeException("La unidad no está en reparación");
         }
 
+        // Flush antes de Kardex: el conflicto de versión aparece aquí y no tras registrar el movimiento
+        unit.setStatus(retire ? ToolStatus.RETIRED : ToolStatus.AVAILABLE);
+        unit = toolUnitRepository.saveAndFlush(unit);
+
         if (retire) {
-            unit.setStatus(ToolStatus.RETIRED);
+            toolGroupStockService.recordTransition(unit.getToolGroup().getId(), ToolStatus.IN_REPAIR, ToolStatus.RETIRED);
             kardexClient.registerRetirementUnit(unitId, unit.getToolGroup().getId(),unit.getToolGroup().getName(), userName);
             log.info("Unidad {} retirada tras reparación fallida", unitId);
         } else {
-            unit.setStatus(ToolStatus.AVAILABLE);
+            toolGroupStockService.recordTransition(unit.getToolGroup().getId(), ToolStatus.IN_REPAIR, ToolStatus.AVAILABLE);
+            unitAvailabilityPool.offerAfterCommit(unit.getToolGroup().getId(), unitId);
             kardexClient.registerReEntryUnit(unitId, unit.getToolGroup().getId(),unit.getToolGroup().getName(), userName);
             log.info("Unidad {} disponible tras reparación exitosa", unitId);
         }
 
-        return toolUnitRepository.save(unit);
+        return unit;
     }
 
     // ========== MÉTODOS PRIVADOS ==========
 
+    private static ToolStatus parseStatus(String status) {
+        try {
+            return ToolStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    // Mismos movimientos que updateStatus: solo reparación y retiro generan Kardex
+    private static KardexRequest toKardexMovement(ToolUnitEntity unit, ToolStatus newStatus, String userName) {
+        String details = switch (newStatus) {
+            case IN_REPAIR -> " Herramienta en Reparación - Daño leve";
+            case RETIRED -> " Herramienta Retirada - Daño irreparable ";
+            default -> null;
+        };
+        if (details == null) {
+            return null;
+        }
+        return new KardexRequest(
+                newStatus == ToolStatus.IN_REPAIR ? "REPAIR" : "RETIRE",
+                unit.getId(),
+                unit.getToolGroup().getId(),
+                null,
+                details,
+                userName
+        );
+    }
+
+    // Bloquea una unidad disponible del grupo: primero el candidato del pool en memoria
+    // (confirmado por id con FOR UPDATE SKIP LOCKED), si no hay o está obsoleto, la consulta por grupo
+    private Optional<ToolUnitEntity> lockAvailableUnit(Long toolGroupId) {
+        Long candidate = unitAvailabilityPool.poll(toolGroupId);
+        if (candidate != null) {
+            Optional<ToolUnitEntity> confirmed = toolUnitRepository.lockIfAvailable(candidate, toolGroupId);
+            if (confirmed.isPresent()) {
+                unitAvailabilityPool.recordHit();
+                unitAvailabilityPool.returnOnRollback(toolGroupId, candidate);
+                return confirmed;
+            }
+        }
+        unitAvailabilityPool.recordFallback(candidate == null);
+        return toolUnitRepository.lockFirstAvailable(toolGroupId);
+    }
+
     private ToolUnitModel mapToModel(ToolUnitEntity unit, TariffModel tariff) {
         return new ToolUnitModel(
                 unit.getId(),
@@ -255,9 +557,23 @@ public class ToolUnitService {
         );
     }
 
+    private ToolUnitResponseDTO mapToResponseDTO(ToolUnitEntity unit, TariffModel tariff) {
+        return new ToolUnitResponseDTO(
+                unit.getId(),
+                unit.getToolGroup().getId(),
+                unit.getToolGroup().getName(),
+                unit.getToolGroup().getCategory(),
+                unit.getStatus(),
+                unit.getToolGroup().getTariffId(),
+                tariff.getDailyRentalRate(),
+                tariff.getDailyFineRate(),
+                unit.getToolGroup().getReplacementValue()
+        );
+    }
+
     private TariffModel getTariffFromService(Long tariffId) {
         try {
-            return tariffClient.getTariff(tariffId);
+            return tariffCache.get(tariffId);
         } catch (Exception e) {
             log.error("Error obteniendo tarifa {} de Tariff Service", tariffId, e);
             throw new RuntimeException("Error al obtener tarifa: " + e.getMessage());
@@ -0,0 +1,125 @@
+package com.example.tools_service.service;
+
+import com.example.tools_service.repository.ToolUnitRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Pool en memoria de unidades disponibles por grupo. Entregar un candidato es un poll sin bloqueos;
+// quien lo usa debe confirmarlo en la base de datos, que sigue siendo la fuente de verdad.
+// Puede contener IDs obsoletos (otra instancia los prestó, cambios no vistos): la confirmación
+// los descarta y se cae a la consulta normal. Se reconstruye al arrancar y periódicamente.
+@Component
+@Slf4j
+public class UnitAvailabilityPool {
+
+    private final ToolUnitRepository toolUnitRepository;
+    private final Map<Long, ConcurrentLinkedQueue<Long>> pool = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter emptyCounter;
+    private final Counter staleCounter;
+
+    public UnitAvailabilityPool(ToolUnitRepository toolUnitRepository, MeterRegistry meterRegistry) {
+        this.toolUnitRepository = toolUnitRepository;
+        this.hitCounter = meterRegistry.counter("tools.availability.pool", "result", "hit");
+        this.emptyCounter = meterRegistry.counter("tools.availability.pool", "result", "fallback_empty");
+        this.staleCounter = meterRegistry.counter("tools.availability.pool", "result", "fallback_stale");
+        meterRegistry.gauge("tools.availability.pool.size", pool,
+                p -> p.values().stream().mapToInt(ConcurrentLinkedQueue::size).sum());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${tools.availability-pool.refresh-ms:300000}",
+            fixedDelayString = "${tools.availability-pool.refresh-ms:300000}")
+    public void rebuild() {
+        Map<Long, ConcurrentLinkedQueue<Long>> fresh = new ConcurrentHashMap<>();
+        for (Object[] row : toolUnitRepository.findAvailableIds()) {
+            fresh.computeIfAbsent((Long) row[0], id -> new ConcurrentLinkedQueue<>()).add((Long) row[1]);
+        }
+        pool.keySet().retainAll(fresh.keySet());
+        pool.putAll(fresh);
+        log.debug("Pool de disponibilidad reconstruido: {} grupos", fresh.size());
+    }
+
+    // Candidato para reservar (puede estar obsoleto), o null si el pool del grupo está vacío
+    public Long poll(Long toolGroupId) {
+        ConcurrentLinkedQueue<Long> queue = pool.get(toolGroupId);
+        return queue != null ? queue.poll() : null;
+    }
+
+    // Candidato para consultar sin sacarlo del pool
+    public Long peek(Long toolGroupId) {
+        ConcurrentLinkedQueue<Long> queue = pool.get(toolGroupId);
+        return queue != null ? queue.peek() : null;
+    }
+
+    // Saca un candidato que no pasó la confirmación; remove y no poll para no llevarse
+    // otro ID si un hilo concurrente ya lo sacó de la cabeza
+    public void discard(Long toolGroupId, Long unitId) {
+        ConcurrentLinkedQueue<Long> queue = pool.get(toolGroupId);
+        if (queue != null) {
+            queue.remove(unitId);
+        }
+    }
+
+    public void recordHit() {
+        hitCounter.increment();
+    }
+
+    public void recordFallback(boolean poolWasEmpty) {
+        (poolWasEmpty ? emptyCounter : staleCounter).increment();
+    }
+
+    // La unidad vuelve a estar disponible cuando la transacción actual confirme
+    public void offerAfterCommit(Long toolGroupId, Long unitId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                offer(toolGroupId, unitId);
+            }
+        });
+    }
+
+    // Un candidato sacado con poll vuelve al pool si la reserva no llega a confirmarse
+    public void returnOnRollback(Long toolGroupId, Long unitId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    offer(toolGroupId, unitId);
+                }
+            }
+        });
+    }
+
+    // Tras un alta masiva se recarga el grupo completo en vez de encolar ID por ID
+    public void reloadGroupAfterCommit(Long toolGroupId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                List<Long> ids = toolUnitRepository.findAvailableIdsByGroup(toolGroupId);
+                pool.put(toolGroupId, new ConcurrentLinkedQueue<>(ids));
+            }
+        });
+    }
+
+    private void offer(Long toolGroupId, Long unitId) {
+        pool.computeIfAbsent(toolGroupId, id -> new ConcurrentLinkedQueue<>()).offer(unitId);
+    }
+}
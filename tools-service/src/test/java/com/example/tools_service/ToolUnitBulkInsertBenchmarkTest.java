@@ -0,0 +1,83 @@
+package com.example.tools_service;
+
+import com.example.tools_service.entity.ToolGroupEntity;
+import com.example.tools_service.entity.ToolStatus;
+import com.example.tools_service.repository.ToolGroupRepository;
+import com.example.tools_service.repository.ToolUnitRepository;
+import com.example.tools_service.service.ToolUnitBulkWriter;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Benchmark del alta masiva de unidades sobre H2 en memoria.
+// Ejecutar con: mvn test -Dtest=ToolUnitBulkInsertBenchmarkTest -Dbenchmark=true
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(ToolUnitBulkWriter.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class ToolUnitBulkInsertBenchmarkTest {
+
+    private static final int[] STOCK_SIZES = {1_000, 5_000, 20_000};
+
+    @Autowired
+    private ToolUnitBulkWriter toolUnitBulkWriter;
+
+    @Autowired
+    private ToolGroupRepository toolGroupRepository;
+
+    @Autowired
+    private ToolUnitRepository toolUnitRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void largeInitialStock() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Calentamiento
+        toolUnitBulkWriter.insertAvailableUnits(newGroup("warmup").getId(), 1_000);
+
+        for (int quantity : STOCK_SIZES) {
+            ToolGroupEntity group = newGroup("bench-" + quantity);
+            statistics.clear();
+
+            long start = System.nanoTime();
+            toolUnitBulkWriter.insertAvailableUnits(group.getId(), quantity);
+            long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+            long inserted = statistics.getEntityInsertCount();
+            long statements = statistics.getPrepareStatementCount();
+            log.info("unidades={} tiempo={}ms filas/s={} inserts={} sentencias preparadas={}",
+                    quantity, elapsedMs, quantity * 1000L / elapsedMs, inserted, statements);
+
+            assertEquals(quantity, inserted);
+            assertEquals(quantity, toolUnitRepository.countByToolGroupIdAndStatus(
+                    group.getId(), ToolStatus.AVAILABLE));
+            // Con lotes JDBC y secuencia en bloques, las sentencias no crecen una por fila
+            assertTrue(statements < quantity / 10, "Se esperaban INSERT en lote, sentencias=" + statements);
+        }
+    }
+
+    private ToolGroupEntity newGroup(String name) {
+        ToolGroupEntity group = new ToolGroupEntity();
+        group.setName(name);
+        group.setCategory("Benchmark");
+        group.setReplacementValue(1000.0);
+        group.setTariffId(1L);
+        return toolGroupRepository.saveAndFlush(group);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.tools_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Reintentos ante conflictos de versión, sin base de datos: cada llamada al TransactionTemplate es un intento
+class StatusTransitionExecutorTest {
+
+    private static final String OPERATION = "update_status";
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatusTransitionExecutor executor = new StatusTransitionExecutor(transactionTemplate, meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(executor, "maxAttempts", 4);
+        ReflectionTestUtils.setField(executor, "baseDelayMs", 0L);
+        ReflectionTestUtils.setField(executor, "maxDelayMs", 0L);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void conflictIsRetriedUntilTheTransitionSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = executor.execute(OPERATION, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("versión desactualizada");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, counter("tools.units.optimistic.conflicts").count());
+        assertEquals(2.0, counter("tools.units.optimistic.retries").count());
+        assertNull(meterRegistry.find("tools.units.optimistic.exhausted").counter());
+    }
+
+    @Test
+    void exhaustedRetriesSurfaceTheConflict() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> executor.run(OPERATION, () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("versión desactualizada");
+        }));
+
+        assertEquals("La unidad fue modificada por otra operación, intente nuevamente", error.getMessage());
+        assertEquals(4, attempts.get());
+        assertEquals(4.0, counter("tools.units.optimistic.conflicts").count());
+        assertEquals(3.0, counter("tools.units.optimistic.retries").count());
+        assertEquals(1.0, counter("tools.units.optimistic.exhausted").count());
+    }
+
+    private Counter counter(String name) {
+        return meterRegistry.get(name).tag("operation", OPERATION).counter();
+    }
+}
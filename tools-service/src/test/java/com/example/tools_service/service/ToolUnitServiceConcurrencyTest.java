@@ -0,0 +1,183 @@
+package com.example.tools_service.service;
+
+import com.example.tools_service.client.KardexClient;
+import com.example.tools_service.dto.UnitStatusChangeRequestDTO;
+import com.example.tools_service.dto.UnitStatusChangeResultDTO;
+import com.example.tools_service.entity.ToolGroupEntity;
+import com.example.tools_service.entity.ToolGroupStockEntity;
+import com.example.tools_service.entity.ToolStatus;
+import com.example.tools_service.entity.ToolUnitEntity;
+import com.example.tools_service.model.TariffModel;
+import com.example.tools_service.model.ToolUnitModel;
+import com.example.tools_service.repository.ToolGroupRepository;
+import com.example.tools_service.repository.ToolGroupStockRepository;
+import com.example.tools_service.repository.ToolUnitRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Reservas concurrentes y contadores de stock sobre H2; sin transacción de test para que
+// cada operación confirme la suya como en producción
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false"
+})
+@Import({ToolUnitService.class, ToolGroupStockService.class, UnitAvailabilityPool.class,
+        StatusTransitionExecutor.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ToolUnitServiceConcurrencyTest {
+
+    @Autowired
+    private ToolUnitService toolUnitService;
+
+    @Autowired
+    private ToolGroupStockService toolGroupStockService;
+
+    @Autowired
+    private ToolGroupRepository toolGroupRepository;
+
+    @Autowired
+    private ToolUnitRepository toolUnitRepository;
+
+    @Autowired
+    private ToolGroupStockRepository stockRepository;
+
+    @Autowired
+    private UnitAvailabilityPool unitAvailabilityPool;
+
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @MockitoBean
+    private TariffCache tariffCache;
+
+    @MockitoBean
+    private KardexClient kardexClient;
+
+    private ToolGroupEntity group;
+
+    @BeforeEach
+    void setUp() {
+        when(tariffCache.get(any())).thenReturn(new TariffModel(1L, 5_000.0, 1_000.0));
+        group = toolGroupRepository.save(new ToolGroupEntity(null, "Taladro", "Eléctricas", 80_000.0, 1L, null,
+                new ArrayList<>()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        toolUnitRepository.deleteAll();
+        toolGroupRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentReservationsNeverShareAUnit() throws Exception {
+        int units = 5;
+        int borrowers = 12;
+        seedUnits(units);
+        // Con el pool cargado cada reserva confirma su candidato por clave primaria. En H2, la consulta
+        // por grupo con LIMIT 1 y SKIP LOCKED devuelve vacío si otra transacción ya cambió la primera
+        // fila sin confirmar (InnoDB sigue con la siguiente), así que la cantidad exacta no se fija
+        unitAvailabilityPool.rebuild();
+
+        ExecutorService executor = Executors.newFixedThreadPool(borrowers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ToolUnitModel>> futures = new ArrayList<>();
+        Set<Long> reserved = new HashSet<>();
+        try {
+            for (int i = 0; i < borrowers; i++) {
+                String userName = "user-" + i;
+                Callable<ToolUnitModel> reservation = () -> {
+                    start.await();
+                    return toolUnitService.reserveAvailableUnit(group.getId(), userName);
+                };
+                futures.add(executor.submit(reservation));
+            }
+            start.countDown();
+
+            int rejected = 0;
+            for (Future<ToolUnitModel> future : futures) {
+                try {
+                    ToolUnitModel unit = future.get(30, TimeUnit.SECONDS);
+                    assertTrue(reserved.add(unit.getId()), "Unidad entregada dos veces: " + unit.getId());
+                } catch (ExecutionException e) {
+                    assertEquals("No hay unidades disponibles para este grupo", e.getCause().getMessage());
+                    rejected++;
+                }
+            }
+
+            assertFalse(reserved.isEmpty());
+            assertEquals(borrowers, reserved.size() + rejected);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Cada reserva confirmada corresponde a una unidad LOANED y a un movimiento del stock
+        assertEquals(reserved.size(), toolUnitRepository.countByToolGroupIdAndStatus(group.getId(), ToolStatus.LOANED));
+        ToolGroupStockEntity stock = stockRepository.findById(group.getId()).orElseThrow();
+        assertEquals(units - reserved.size(), stock.getAvailable());
+        assertEquals(reserved.size(), stock.getLoaned());
+    }
+
+    @Test
+    void bulkTransitionKeepsStockCountersInLineWithTheUnits() {
+        List<ToolUnitEntity> units = seedUnits(4);
+
+        List<UnitStatusChangeResultDTO> results = toolUnitService.updateStatuses(List.of(
+                new UnitStatusChangeRequestDTO(units.get(0).getId(), "IN_REPAIR"),
+                new UnitStatusChangeRequestDTO(units.get(1).getId(), "RETIRED"),
+                new UnitStatusChangeRequestDTO(units.get(2).getId(), "LOANED"),
+                new UnitStatusChangeRequestDTO(units.get(2).getId(), "AVAILABLE"),
+                new UnitStatusChangeRequestDTO(units.get(3).getId(), "AVAILABLE"),
+                new UnitStatusChangeRequestDTO(-1L, "RETIRED")
+        ), "tester");
+
+        assertEquals(List.of(true, true, true, false, false, false),
+                results.stream().map(UnitStatusChangeResultDTO::isSuccess).toList());
+        ToolGroupStockEntity stock = stockRepository.findById(group.getId()).orElseThrow();
+        assertEquals(new ToolGroupStockEntity(group.getId(), 1, 1, 1, 1), stock);
+        assertEquals(1, toolUnitRepository.countByToolGroupIdAndStatus(group.getId(), ToolStatus.AVAILABLE));
+        verify(kardexClient).registerMovements(anyList());
+
+        // La reconciliación no encuentra nada que corregir
+        toolGroupStockService.reconcile();
+        assertEquals(0.0, meterRegistry.get("tools.stock.drift").counter().count());
+    }
+
+    private List<ToolUnitEntity> seedUnits(int quantity) {
+        List<ToolUnitEntity> units = new ArrayList<>();
+        for (int i = 0; i < quantity; i++) {
+            units.add(new ToolUnitEntity(null, group, ToolStatus.AVAILABLE, null));
+        }
+        List<ToolUnitEntity> saved = toolUnitRepository.saveAll(units);
+        stockRepository.save(new ToolGroupStockEntity(group.getId(), quantity, 0, 0, 0));
+        return saved;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.tools_service.service;
+
+import com.example.tools_service.repository.ToolUnitRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UnitAvailabilityPoolTest {
+
+    private static final Long GROUP_ID = 1L;
+
+    private final ToolUnitRepository toolUnitRepository = mock(ToolUnitRepository.class);
+    private final UnitAvailabilityPool pool = new UnitAvailabilityPool(toolUnitRepository, new SimpleMeterRegistry());
+
+    @Test
+    void discardedStaleHeadExposesTheNextCandidate() {
+        when(toolUnitRepository.findAvailableIds())
+                .thenReturn(List.of(new Object[]{GROUP_ID, 10L}, new Object[]{GROUP_ID, 11L}));
+        pool.rebuild();
+
+        assertEquals(10L, pool.peek(GROUP_ID));
+        pool.discard(GROUP_ID, 10L);
+
+        assertEquals(11L, pool.peek(GROUP_ID));
+    }
+
+    @Test
+    void discardAfterAConcurrentPollKeepsTheOtherCandidates() {
+        when(toolUnitRepository.findAvailableIds())
+                .thenReturn(List.of(new Object[]{GROUP_ID, 10L}, new Object[]{GROUP_ID, 11L}));
+        pool.rebuild();
+
+        // Otro hilo reservó la cabeza entre el peek y el descarte
+        Long stale = pool.peek(GROUP_ID);
+        assertEquals(10L, pool.poll(GROUP_ID));
+        pool.discard(GROUP_ID, stale);
+
+        assertEquals(11L, pool.poll(GROUP_ID));
+        assertNull(pool.poll(GROUP_ID));
+    }
+}